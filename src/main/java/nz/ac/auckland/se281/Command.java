@@ -7,6 +7,8 @@ package nz.ac.auckland.se281;
  */
 public enum Command {
   OPEN_FILE(1, "Open the file <FILENAME>"),
+  OPEN_SNAPSHOT(1, "Open the graph snapshot file <FILENAME>"),
+  SAVE_SNAPSHOT(1, "Save the current loaded graph to the snapshot file <FILENAME>"),
   INFO(0, "Print information about the current loaded file"),
 
   LIST_VERTICIES_EDGES(0, "List the set of vertices and edges"),
@@ -18,12 +20,21 @@ public enum Command {
   CHECK_ANTISYMMETRY(0, "Check anti-symmetry of the graph"),
   CHECK_EQUIVALENCE(0, "Check equivalence of the graph"),
   COMPUTE_EQUIVALENCE(1, "Compute equivalence class for a vertex in loaded file <VERTEX>"),
+  EXPLAIN(0, "Turn counterexamples for failed property checks on or off"),
+  COMPUTE_CLOSURE(1, "Compute the transitive closure of the graph and save it to <FILENAME>"),
+  COMPUTE_REFLEXIVE_CLOSURE(
+      1, "Compute the reflexive transitive closure of the graph and save it to <FILENAME>"),
 
   GRAPH_SEARCH_IBFS(
       0, "Perform a breadth-first search on the current loaded file, and display the BFS order"),
   GRAPH_SEARCH_IDFS(
       0, "Perform a depth-first search on the current loaded file, and display the DFS order"),
 
+  GRAPH_SEARCH_PBFS(
+      0,
+      "Perform a parallel breadth-first search on the current loaded file, and display the BFS"
+          + " order"),
+
   GRAPH_SEARCH_RBFS(
       0,
       "Perform a recursive breadth-first search on the current loaded file, and display the BFS"
@@ -0,0 +1,434 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import nz.ac.auckland.se281.datastructures.ByteStringMap;
+
+/**
+ * A streaming reader for the subset of the DOT language used by the test cases, which passes each
+ * vertex and edge to a listener as soon as it is read instead of building the whole graph in
+ * memory.
+ *
+ * <p>The supported subset is a single {@code digraph} whose statements are bare vertex ids and
+ * chains of edges such as {@code a -> b -> c;}, with optional semicolons and line or block
+ * comments. Anything else, such as quoted ids, attributes or subgraphs, is reported as unsupported
+ * so the caller can fall back to a full DOT parser.
+ *
+ * <p>Files are read through a memory map of the file channel, mapped in chunks of at most {@link
+ * #MAX_CHUNK_SIZE} bytes so files larger than 2 GB can be read. Vertex ids are tokenized straight
+ * out of the mapped bytes and looked up by their bytes, so a {@code String} is only created the
+ * first time each vertex is seen.
+ */
+public class DotReader {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The largest number of bytes of a file that are mapped at once. */
+  public static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+  // Keywords of the DOT language that are not treated as vertex ids
+  private static final Set<String> KEYWORDS =
+      Set.of("strict", "graph", "digraph", "subgraph", "node", "edge");
+
+  /** Receives the verticies and edges of a graph in the order they are read. */
+  public interface Listener {
+
+    /**
+     * Receives each distinct vertex once, the first time it is mentioned.
+     *
+     * @param name the id of the vertex.
+     * @return the index the listener uses for the vertex, which is passed back in edges.
+     */
+    int vertex(String name);
+
+    /**
+     * Receives an edge between two verticies that were already passed to {@link #vertex}.
+     *
+     * @param source the index of the source vertex.
+     * @param destination the index of the destination vertex.
+     */
+    void edge(int source, int destination);
+  }
+
+  /** Thrown when the input uses DOT syntax outside of the subset this reader supports. */
+  public static class UnsupportedSyntaxException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Thrown when the input uses DOT syntax outside of the supported subset.
+     *
+     * @param message a description of the unsupported syntax.
+     */
+    public UnsupportedSyntaxException(String message) {
+      super(message);
+    }
+  }
+
+  private final InputStream input;
+  private final FileChannel channel;
+  private final int chunkSize;
+  private final ByteStringMap verticies;
+  private ByteBuffer window;
+  private long windowStart;
+  private int position;
+  private int limit;
+  private boolean endOfInput;
+  private byte[] token;
+
+  /**
+   * A streaming reader for the DOT graph in an input stream.
+   *
+   * @param input the stream to read the graph from.
+   */
+  public DotReader(InputStream input) {
+    this(input, null, BUFFER_SIZE);
+    window = ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  /**
+   * A streaming reader for the DOT graph in a file, which is read through a memory map.
+   *
+   * @param channel the channel of the file to read the graph from.
+   */
+  public DotReader(FileChannel channel) {
+    this(channel, MAX_CHUNK_SIZE);
+  }
+
+  /**
+   * A streaming reader for the DOT graph in a file, which is read through a memory map.
+   *
+   * @param channel the channel of the file to read the graph from.
+   * @param chunkSize the largest number of bytes to map at once.
+   */
+  public DotReader(FileChannel channel, int chunkSize) {
+    this(null, channel, chunkSize);
+    if (chunkSize < 2) {
+      throw new IllegalArgumentException("chunks must hold at least two bytes");
+    }
+    window = ByteBuffer.allocate(0);
+  }
+
+  private DotReader(InputStream input, FileChannel channel, int chunkSize) {
+    this.input = input;
+    this.channel = channel;
+    this.chunkSize = chunkSize;
+    verticies = new ByteStringMap();
+    windowStart = 0;
+    position = 0;
+    limit = 0;
+    endOfInput = false;
+    token = new byte[64];
+  }
+
+  /**
+   * A streaming reader for a range of bytes that is already in memory, which may be part of a
+   * larger file.
+   *
+   * @param bytes the bytes to read, from their position up to their limit.
+   */
+  public DotReader(ByteBuffer bytes) {
+    this(null, null, bytes.remaining());
+    window = bytes;
+    position = bytes.position();
+    limit = bytes.limit();
+    endOfInput = true;
+  }
+
+  /**
+   * Reads the whole graph, passing every vertex and edge to the listener.
+   *
+   * @param listener the listener that receives the verticies and edges.
+   * @throws IOException if the input cannot be read.
+   * @throws UnsupportedSyntaxException if the input is not in the supported subset of DOT.
+   */
+  public void read(Listener listener) throws IOException, UnsupportedSyntaxException {
+    readHeader();
+    if (!readStatements(listener)) {
+      throw new UnsupportedSyntaxException(describe(-1));
+    }
+    readTrailer();
+  }
+
+  /**
+   * Reads the header of the graph, which is the digraph keyword, an optional name and the opening
+   * brace.
+   *
+   * @throws UnsupportedSyntaxException if the header is not in the supported subset of DOT.
+   */
+  void readHeader() throws IOException, UnsupportedSyntaxException {
+    skipWhitespace();
+    String keyword = readId();
+    if (keyword == null || !keyword.toLowerCase(Locale.ROOT).equals("digraph")) {
+      throw new UnsupportedSyntaxException("expected a digraph");
+    }
+    skipWhitespace();
+    if (peek(0) != '{') {
+      requireVertexId(readId());
+      skipWhitespace();
+    }
+    expect('{');
+  }
+
+  /**
+   * Reads statements until the closing brace of the graph or the end of the input, passing every
+   * vertex and edge to the listener.
+   *
+   * @param listener the listener that receives the verticies and edges.
+   * @return true if the closing brace was read, false if the input ended between statements.
+   * @throws UnsupportedSyntaxException if a statement is not in the supported subset of DOT, or
+   *     the input ends part way through one.
+   */
+  boolean readStatements(Listener listener) throws IOException, UnsupportedSyntaxException {
+    while (true) {
+      skipWhitespace();
+      int next = peek(0);
+      if (next == -1) {
+        return false;
+      } else if (next == '}') {
+        position++;
+        return true;
+      } else if (next == ';') {
+        position++;
+        continue;
+      }
+
+      // Every statement starts with a vertex, which may be followed by a chain of edges
+      int source = readVertex(listener);
+      skipWhitespace();
+      while (peek(0) == '-' && peek(1) == '>') {
+        position += 2;
+        skipWhitespace();
+        int destination = readVertex(listener);
+        listener.edge(source, destination);
+        source = destination;
+        skipWhitespace();
+      }
+    }
+  }
+
+  /**
+   * Reads what follows the closing brace of the graph, where only whitespace and comments may be.
+   *
+   * @throws UnsupportedSyntaxException if there is anything else after the graph.
+   */
+  void readTrailer() throws IOException, UnsupportedSyntaxException {
+    skipWhitespace();
+    if (peek(0) != -1) {
+      throw new UnsupportedSyntaxException("unexpected input after the graph");
+    }
+  }
+
+  /**
+   * Gets the offset of the next byte to read from the start of the input.
+   *
+   * @return the offset of the next byte.
+   */
+  long offset() {
+    return windowStart + position;
+  }
+
+  /**
+   * Checks that a token read from the input is a vertex id.
+   *
+   * @param id the token, or null if no id could be read.
+   * @return the vertex id.
+   * @throws UnsupportedSyntaxException if the token is missing or is a keyword.
+   */
+  private String requireVertexId(String id) throws IOException, UnsupportedSyntaxException {
+    if (id == null) {
+      throw new UnsupportedSyntaxException(describe(peek(0)));
+    }
+    if (KEYWORDS.contains(id.toLowerCase(Locale.ROOT))) {
+      throw new UnsupportedSyntaxException("unexpected keyword " + id);
+    }
+    return id;
+  }
+
+  /**
+   * Consumes a character that must be next in the input.
+   *
+   * @param expected the expected character.
+   * @throws UnsupportedSyntaxException if a different character is next.
+   */
+  private void expect(char expected) throws IOException, UnsupportedSyntaxException {
+    if (peek(0) != expected) {
+      throw new UnsupportedSyntaxException(describe(peek(0)));
+    }
+    position++;
+  }
+
+  /**
+   * Reads a vertex id and finds the index the listener gave it, passing it to the listener first
+   * if it has not been seen before.
+   *
+   * @param listener the listener that receives the verticies.
+   * @return the index of the vertex.
+   * @throws UnsupportedSyntaxException if the next token is not a vertex id.
+   */
+  private int readVertex(Listener listener) throws IOException, UnsupportedSyntaxException {
+    int length = readToken();
+
+    // Look the id up by its bytes, so repeated verticies never allocate a string
+    int index = verticies.get(token, length);
+    if (index == -1) {
+      String name = length == 0 ? null : new String(token, 0, length, StandardCharsets.US_ASCII);
+      index = listener.vertex(requireVertexId(name));
+      verticies.put(token, length, index);
+    }
+    return index;
+  }
+
+  /**
+   * Reads an unquoted id.
+   *
+   * @return the id, or null if the next character cannot start an id.
+   */
+  private String readId() throws IOException {
+    int length = readToken();
+    return length == 0 ? null : new String(token, 0, length, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Reads an unquoted id into the token array, which is either a run of letters, digits,
+   * underscores and dots, or a numeral with a leading minus sign.
+   *
+   * @return the length of the id, or 0 if the next character cannot start an id.
+   */
+  private int readToken() throws IOException {
+    int length = 0;
+
+    // A minus sign only starts an id when it begins a numeral, otherwise it may be an edge
+    if (peek(0) == '-' && (isDigit(peek(1)) || peek(1) == '.')) {
+      token[length++] = '-';
+      position++;
+    }
+
+    int next = peek(0);
+    while (isIdCharacter(next)) {
+      if (length == token.length) {
+        token = Arrays.copyOf(token, token.length * 2);
+      }
+      token[length++] = (byte) next;
+      position++;
+      next = peek(0);
+    }
+
+    return length;
+  }
+
+  /**
+   * Skips whitespace and comments.
+   *
+   * @throws UnsupportedSyntaxException if a block comment is not closed.
+   */
+  private void skipWhitespace() throws IOException, UnsupportedSyntaxException {
+    while (true) {
+      int next = peek(0);
+      if (next == ' ' || next == '\t' || next == '\n' || next == '\r' || next == '\f') {
+        position++;
+      } else if (next == '#' || (next == '/' && peek(1) == '/')) {
+        // Line comments run to the end of the line
+        while (peek(0) != -1 && peek(0) != '\n') {
+          position++;
+        }
+      } else if (next == '/' && peek(1) == '*') {
+        // Block comments run to the closing marker, which must come before the end of the input
+        position += 2;
+        while (peek(0) != -1 && !(peek(0) == '*' && peek(1) == '/')) {
+          position++;
+        }
+        if (peek(0) == -1) {
+          throw new UnsupportedSyntaxException("unterminated block comment");
+        }
+        position += 2;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Looks at a character ahead of the current position without consuming it, refilling the window
+   * if needed.
+   *
+   * @param offset how far ahead of the current position to look, which is at most 1.
+   * @return the character, or -1 if the input ends first.
+   */
+  private int peek(int offset) throws IOException {
+    // Keep the common case of a byte already in the window small enough to be inlined
+    int index = position + offset;
+    if (index < limit) {
+      return window.get(index) & 0xFF;
+    }
+
+    while (position + offset >= limit) {
+      if (endOfInput) {
+        return -1;
+      }
+      refill();
+    }
+    return window.get(position + offset) & 0xFF;
+  }
+
+  /**
+   * Moves the window forward so it starts at the current position and holds more of the input,
+   * or marks the end of the input if there is no more.
+   */
+  private void refill() throws IOException {
+    if (channel != null) {
+      // Map the next chunk of the file, starting from the first unread byte so that any byte
+      // still being looked at carries over into the new chunk
+      windowStart += position;
+      long remaining = channel.size() - windowStart;
+      if (remaining <= limit - position) {
+        endOfInput = true;
+        return;
+      }
+      limit = (int) Math.min(remaining, chunkSize);
+      position = 0;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, limit);
+      return;
+    }
+
+    // Move the unread bytes to the front of the buffer and fill the space after them
+    byte[] buffer = window.array();
+    System.arraycopy(buffer, position, buffer, 0, limit - position);
+    limit -= position;
+    position = 0;
+    int read = input.read(buffer, limit, buffer.length - limit);
+    if (read == -1) {
+      endOfInput = true;
+    } else {
+      limit += read;
+    }
+  }
+
+  private static boolean isDigit(int character) {
+    return character >= '0' && character <= '9';
+  }
+
+  private static boolean isIdCharacter(int character) {
+    return (character >= 'a' && character <= 'z')
+        || (character >= 'A' && character <= 'Z')
+        || isDigit(character)
+        || character == '_'
+        || character == '.';
+  }
+
+  /**
+   * Describes an unexpected character for an error message.
+   *
+   * @param character the character, or -1 for the end of the input.
+   * @return the description.
+   */
+  private static String describe(int character) {
+    return character == -1
+        ? "unexpected end of input"
+        : "unexpected character '" + (char) character + "'";
+  }
+}
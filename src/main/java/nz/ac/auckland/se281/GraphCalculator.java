@@ -3,15 +3,30 @@ package nz.ac.auckland.se281;
 import com.paypal.digraph.parser.GraphEdge;
 import com.paypal.digraph.parser.GraphNode;
 import com.paypal.digraph.parser.GraphParser;
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import nz.ac.auckland.se281.datastructures.DotWriter;
 import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.EdgeSink;
+import nz.ac.auckland.se281.datastructures.ExternalTransitivityChecker;
 import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphBuilder;
+import nz.ac.auckland.se281.datastructures.GraphSnapshot;
+import nz.ac.auckland.se281.datastructures.StreamingPropertyChecker;
 
 /**
  * The calculator that reports properties of graphs to the user.
@@ -23,11 +38,13 @@ public class GraphCalculator {
 
   private final Path file;
 
-  private final Collection<GraphNode> verticies;
+  private final Graph<String> graph;
 
-  private final Collection<GraphEdge> edges;
+  private final long bytesLoaded;
 
-  private final Graph<String> graph;
+  private final long loadNanos;
+
+  private boolean explain;
 
   /**
    * Creates a new graph calculator.
@@ -38,48 +55,313 @@ public class GraphCalculator {
   public GraphCalculator(final String filename) throws FileNotFoundException {
     file = TESTCASES.resolve(filename);
 
-    final GraphParser parser = new GraphParser(new FileInputStream(file.toFile()));
+    final long start = System.nanoTime();
+    Graph<String> loaded;
+    try {
+      loaded = readStreaming();
+    } catch (DotReader.UnsupportedSyntaxException e) {
+      // The file uses DOT syntax the streaming reader does not handle, so parse it in full.
+      loaded = readWithParser();
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException(e.getMessage());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    graph = loaded;
+    loadNanos = System.nanoTime() - start;
+    bytesLoaded = file.toFile().length();
+  }
+
+  /**
+   * Creates a graph calculator for a graph that has already been loaded.
+   *
+   * @param file The file the graph was loaded from.
+   * @param graph The graph.
+   * @param loadNanos How long loading the graph took, in nanoseconds.
+   */
+  private GraphCalculator(final Path file, final Graph<String> graph, final long loadNanos) {
+    this.file = file;
+    this.graph = graph;
+    this.loadNanos = loadNanos;
+    this.bytesLoaded = file.toFile().length();
+  }
+
+  /**
+   * Creates a new graph calculator from a graph snapshot, without parsing the graph again. The
+   * snapshot is memory mapped, so its edges are never copied onto the heap.
+   *
+   * @param filename The name of the snapshot to read from the test cases folder.
+   * @return The graph calculator.
+   * @throws FileNotFoundException If the file does not exist.
+   * @throws IOException If the file is not a readable snapshot.
+   */
+  public static GraphCalculator openSnapshot(final String filename) throws IOException {
+    final Path file = TESTCASES.resolve(filename);
+
+    final long start = System.nanoTime();
+    try {
+      final Graph<String> graph = GraphSnapshot.map(file);
+      return new GraphCalculator(file, graph, System.nanoTime() - start);
+    } catch (NoSuchFileException e) {
+      throw new FileNotFoundException(e.getMessage());
+    }
+  }
+
+  /**
+   * Saves the loaded graph as a snapshot in the test cases folder, so it can be reopened quickly.
+   *
+   * @param filename The name of the snapshot file to write.
+   */
+  public void saveSnapshot(final String filename) {
+    try {
+      GraphSnapshot.write(graph, TESTCASES.resolve(filename));
+      MessageCli.SAVED_SNAPSHOT_SUCCESSFULLY.printMessage(filename);
+    } catch (IOException e) {
+      MessageCli.SNAPSHOT_NOT_SAVED.printMessage(filename, String.valueOf(e.getMessage()));
+    }
+  }
+
+  /**
+   * Prints whether the relation in a file is reflexive, symmetric and anti symmetric, streaming its
+   * edges through a checker rather than loading the graph, so files larger than the heap can be
+   * checked.
+   *
+   * @param filename The name of the file to check, relative to the test cases folder.
+   * @param tempDirectory The directory the checker spills records to.
+   * @param memoryBudget The number of bytes of records the checker keeps in memory.
+   */
+  public static void printStreamCheck(
+      final String filename, final Path tempDirectory, final long memoryBudget) {
+    final long start = System.nanoTime();
+
+    try (StreamingPropertyChecker checker =
+        readEdges(
+            TESTCASES.resolve(filename),
+            () -> new StreamingPropertyChecker(tempDirectory, memoryBudget))) {
+      checker.finish();
+
+      MessageCli.GRAPH_REFLEXIVE.printMessage(prefixNot(checker.isReflexive()));
+      MessageCli.GRAPH_SYMMETRIC.printMessage(prefixNot(checker.isSymmetric()));
+      MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(prefixNot(checker.isAntiSymmetric()));
+      MessageCli.STREAM_CHECKED.printMessage(
+          String.valueOf(checker.edgeCount()),
+          String.valueOf(checker.vertexCount()),
+          String.valueOf((System.nanoTime() - start) / 1_000_000),
+          String.valueOf(checker.spilledBytes()));
+    } catch (NoSuchFileException | FileNotFoundException e) {
+      MessageCli.FILE_NOT_FOUND.printMessage(filename);
+    } catch (IOException e) {
+      MessageCli.STREAM_CHECK_FAILED.printMessage(filename, String.valueOf(e.getMessage()));
+    }
+  }
+
+  /**
+   * Prints whether the relation in a file is transitive, sorting its edges and the paths of two
+   * edges on disk rather than loading the graph, so relations larger than memory can be checked.
+   *
+   * @param filename The name of the file to check, relative to the test cases folder.
+   * @param tempDirectory The directory the checker writes sorted runs to.
+   * @param memoryBudget The number of bytes of edges and paths the checker keeps in memory.
+   */
+  public static void printTransitivityCheck(
+      final String filename, final Path tempDirectory, final long memoryBudget) {
+    final long start = System.nanoTime();
+
+    try (ExternalTransitivityChecker checker =
+        readEdges(
+            TESTCASES.resolve(filename),
+            () -> new ExternalTransitivityChecker(tempDirectory, memoryBudget))) {
+      checker.finish();
+
+      MessageCli.GRAPH_TRANSITIVE.printMessage(prefixNot(checker.isTransitive()));
+      MessageCli.TRANSITIVITY_CHECKED.printMessage(
+          String.valueOf(checker.pathCount()),
+          String.valueOf(checker.edgeCount()),
+          String.valueOf((System.nanoTime() - start) / 1_000_000),
+          String.valueOf(checker.spilledBytes()));
+    } catch (NoSuchFileException | FileNotFoundException e) {
+      MessageCli.FILE_NOT_FOUND.printMessage(filename);
+    } catch (IOException e) {
+      MessageCli.STREAM_CHECK_FAILED.printMessage(filename, String.valueOf(e.getMessage()));
+    }
+  }
+
+  /**
+   * Streams every vertex and edge of a file into a sink, using the streaming reader if the file is
+   * in the DOT subset it supports and the full DOT parser otherwise.
+   *
+   * @param file The file to read.
+   * @param sinks Creates the sink to read into, and is asked again for a new sink if the streaming
+   *     reader gives up part way through the file.
+   * @return The sink holding every vertex and edge of the file.
+   * @throws IOException If the file cannot be read, or the sink cannot spill to disk.
+   */
+  private static <S extends EdgeSink> S readEdges(final Path file, final Supplier<S> sinks)
+      throws IOException {
+    S sink = sinks.get();
+    try {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        new DotReader(channel).read(listenerOf(sink));
+      } catch (DotReader.UnsupportedSyntaxException e) {
+        // The file needs the full DOT parser, so start again from a new sink
+        sink.close();
+        sink = sinks.get();
+        parseEdges(file, sink);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      return sink;
+    } catch (IOException | RuntimeException e) {
+      sink.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Adapts a sink to listen to the streaming reader.
+   *
+   * @param sink The sink to add the verticies and edges to.
+   * @return The listener.
+   */
+  private static DotReader.Listener listenerOf(final EdgeSink sink) {
+    return new DotReader.Listener() {
+      @Override
+      public int vertex(final String name) {
+        return sink.addVertex();
+      }
+
+      @Override
+      public void edge(final int source, final int destination) {
+        try {
+          sink.addEdge(source, destination);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Adds every vertex and edge of a file to a sink with the full DOT parser.
+   *
+   * @param file The file to read.
+   * @param sink The sink to add the verticies and edges to.
+   * @throws IOException If the file cannot be read, or the sink cannot spill to disk.
+   */
+  private static void parseEdges(final Path file, final EdgeSink sink) throws IOException {
+    final GraphParser parser =
+        new GraphParser(new BufferedInputStream(new FileInputStream(file.toFile())));
+    final Map<String, Integer> ids = new HashMap<>();
 
-    this.verticies = parser.getNodes().values();
-    this.edges = parser.getEdges().values();
+    for (final GraphNode node : parser.getNodes().values()) {
+      ids.put(node.getId(), sink.addVertex());
+    }
 
-    final Set<String> verticies = new HashSet<>();
+    for (final GraphEdge edge : parser.getEdges().values()) {
+      sink.addEdge(ids.get(edge.getNode1().getId()), ids.get(edge.getNode2().getId()));
+    }
+  }
 
-    for (final GraphNode node : this.verticies) {
-      verticies.add(node.getId());
+  /**
+   * Reads the graph by streaming each vertex and edge straight into a graph builder, in parallel
+   * for large files.
+   *
+   * @return The graph.
+   * @throws IOException If the file cannot be read.
+   * @throws DotReader.UnsupportedSyntaxException If the file is not in the supported DOT subset.
+   */
+  private Graph<String> readStreaming() throws IOException, DotReader.UnsupportedSyntaxException {
+    final GraphBuilder<String> builder = new GraphBuilder<>();
+
+    // Tokenize straight out of a memory map of the file rather than copying it through a stream
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // Large files are split into ranges that are parsed in parallel where possible.
+      if (new ParallelDotLoader().read(channel, builder)) {
+        return builder.build();
+      }
+
+      new DotReader(channel)
+          .read(
+              new DotReader.Listener() {
+                @Override
+                public int vertex(final String name) {
+                  return builder.addVertex(name);
+                }
+
+                @Override
+                public void edge(final int source, final int destination) {
+                  builder.addEdge(source, destination);
+                }
+              });
     }
 
-    final Set<Edge<String>> edges = new HashSet<>();
+    return builder.build();
+  }
 
-    for (final GraphEdge edge : this.edges) {
-      edges.add(new Edge<>(edge.getNode1().getId(), edge.getNode2().getId()));
+  /**
+   * Reads the graph with the full DOT parser, which supports the whole language.
+   *
+   * @return The graph.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  private Graph<String> readWithParser() throws FileNotFoundException {
+    final GraphParser parser =
+        new GraphParser(new BufferedInputStream(new FileInputStream(file.toFile())));
+    final GraphBuilder<String> builder = new GraphBuilder<>();
+
+    for (final GraphNode node : parser.getNodes().values()) {
+      builder.addVertex(node.getId());
     }
 
-    graph = new Graph<>(verticies, edges);
+    for (final GraphEdge edge : parser.getEdges().values()) {
+      builder.addEdge(edge.getNode1().getId(), edge.getNode2().getId());
+    }
+
+    return builder.build();
   }
 
-  /** Prints the filename of the test case that is loaded. */
+  /**
+   * Prints the filename of the test case that is loaded, how quickly it was loaded and how much
+   * memory outside of the heap its edges use.
+   */
   public void printInfo() {
     MessageCli.INFO.printMessage(TESTCASES.relativize(file).toString());
+
+    // Report the throughput in megabytes per second, avoiding a division by zero for tiny files
+    final double seconds = Math.max(loadNanos, 1) / 1e9;
+    MessageCli.LOAD_THROUGHPUT.printMessage(
+        String.valueOf(bytesLoaded),
+        String.valueOf(loadNanos / 1_000_000),
+        String.format(Locale.ROOT, "%.2f", bytesLoaded / seconds / (1024 * 1024)));
+    MessageCli.OFF_HEAP_FOOTPRINT.printMessage(String.valueOf(graph.offHeapBytes()));
+  }
+
+  /** Releases any memory outside of the heap held by the graph. */
+  public void close() {
+    graph.close();
   }
 
   /** Prints the set of verticies and edges in the graph. */
   public void printVerticiesEdges() {
     final StringBuilder sb = new StringBuilder("Verticies:").append(System.lineSeparator());
 
-    // Vertically print each vertex.
-    for (final GraphNode node : verticies) {
-      sb.append("\t").append(node.getId()).append(System.lineSeparator());
+    // Vertically print each vertex, in the order of their ids as text.
+    final List<String> verticies = graph.getVerticies();
+    verticies.sort(Comparator.naturalOrder());
+    for (final String vertex : verticies) {
+      sb.append("\t").append(vertex).append(System.lineSeparator());
     }
 
     sb.append(System.lineSeparator()).append("Edges:").append(System.lineSeparator());
 
-    // Vertically print each edge between verticies.
-    for (final GraphEdge edge : edges) {
+    // Vertically print each edge, in the order of their "source-destination" keys.
+    final List<Edge<String>> edges = graph.getEdges();
+    edges.sort(Comparator.comparing(edge -> edge.getSource() + "-" + edge.getDestination()));
+    for (final Edge<String> edge : edges) {
       sb.append("\t")
-          .append(edge.getNode1().getId())
+          .append(edge.getSource())
           .append(" -> ")
-          .append(edge.getNode2().getId())
+          .append(edge.getDestination())
           .append(System.lineSeparator());
     }
 
@@ -94,26 +376,83 @@ public class GraphCalculator {
   /** Prints if the set of verticies in the graph exhibit the reflexivity property. */
   public void printReflexitivity() {
     MessageCli.GRAPH_REFLEXIVE.printMessage(prefixNot(graph.isReflexive()));
+    if (explain && !graph.isReflexive()) {
+      explainReflexivity();
+    }
   }
 
   /** Prints if the set of edges in the graph exhibit the symmetric property. */
   public void printSymmetry() {
     MessageCli.GRAPH_SYMMETRIC.printMessage(prefixNot(graph.isSymmetric()));
+    if (explain && !graph.isSymmetric()) {
+      explainSymmetry();
+    }
   }
 
   /** Prints if the set of edges in the graph exhibit transitivity. */
   public void printTransitivity() {
     MessageCli.GRAPH_TRANSITIVE.printMessage(prefixNot(graph.isTransitive()));
+    if (explain && !graph.isTransitive()) {
+      explainTransitivity();
+    }
   }
 
   /** Prints if the set of edges in the graph exhibit anti-symmetry. */
   public void printAntiSymmetry() {
     MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(prefixNot(graph.isAntiSymmetric()));
+    if (explain && !graph.isAntiSymmetric()) {
+      final List<String> witness = graph.getAntiSymmetricWitness();
+      MessageCli.NOT_ANTI_SYMMETRIC_WITNESS.printMessage(
+          witness.get(0), witness.get(1), witness.get(1), witness.get(0));
+    }
   }
 
   /** Prints if the entire graph is considered an equivalence relation. */
   public void printEquivalence() {
     MessageCli.GRAPH_EQUIVALENCE.printMessage(prefixNot(graph.isEquivalence()));
+
+    // Explain every property of an equivalence relation that the graph does not have
+    if (explain && !graph.isReflexive()) {
+      explainReflexivity();
+    }
+    if (explain && !graph.isSymmetric()) {
+      explainSymmetry();
+    }
+    if (explain && !graph.isTransitive()) {
+      explainTransitivity();
+    }
+  }
+
+  /**
+   * Sets whether failed property checks also print a counterexample.
+   *
+   * @param explain True to print counterexamples, false otherwise.
+   */
+  public void setExplain(final boolean explain) {
+    this.explain = explain;
+  }
+
+  /** Prints a vertex that shows the graph is not reflexive. */
+  private void explainReflexivity() {
+    MessageCli.NOT_REFLEXIVE_WITNESS.printMessage(graph.getReflexiveWitness().get(0));
+  }
+
+  /** Prints an edge that shows the graph is not symmetric. */
+  private void explainSymmetry() {
+    final List<String> witness = graph.getSymmetricWitness();
+    MessageCli.NOT_SYMMETRIC_WITNESS.printMessage(witness.get(0), witness.get(1));
+  }
+
+  /** Prints a path of two edges that shows the graph is not transitive. */
+  private void explainTransitivity() {
+    final List<String> witness = graph.getTransitiveWitness();
+    MessageCli.NOT_TRANSITIVE_WITNESS.printMessage(
+        witness.get(0),
+        witness.get(1),
+        witness.get(1),
+        witness.get(2),
+        witness.get(0),
+        witness.get(2));
   }
 
   /**
@@ -127,11 +466,43 @@ public class GraphCalculator {
     System.out.println(Arrays.toString(equivalenceClass));
   }
 
+  /**
+   * Computes the transitive closure of the loaded graph and saves it as a DOT file in the test
+   * cases folder, so it can be opened and checked like any other test case.
+   *
+   * @param filename The name of the file to write the closure to.
+   * @param reflexive Whether to compute the reflexive transitive closure.
+   */
+  public void saveClosure(final String filename, final boolean reflexive) {
+    final Graph<String> closure;
+    try {
+      closure = reflexive ? graph.reflexiveTransitiveClosure() : graph.transitiveClosure();
+    } catch (IllegalStateException e) {
+      MessageCli.CLOSURE_NOT_COMPUTED.printMessage(e.getMessage());
+      return;
+    }
+
+    try {
+      DotWriter.write(closure, TESTCASES.resolve(filename), "closure");
+      MessageCli.CLOSURE_SAVED.printMessage(
+          reflexive ? "reflexive transitive" : "transitive",
+          String.valueOf(closure.edgeCount()),
+          filename);
+    } catch (IOException e) {
+      MessageCli.CLOSURE_NOT_SAVED.printMessage(filename, String.valueOf(e.getMessage()));
+    }
+  }
+
   /** Prints the search order of an iterative breadth first search. */
   public void printIterativeBreadthFirstSearch() {
     System.out.println(Arrays.toString(graph.iterativeBreadthFirstSearch().toArray()));
   }
 
+  /** Prints the search order of a breadth first search that expands each level in parallel. */
+  public void printParallelBreadthFirstSearch() {
+    System.out.println(Arrays.toString(graph.parallelBreadthFirstSearch().toArray()));
+  }
+
   /** Prints the search order of an iterative depth first search. */
   public void printDepthFirstSearch() {
     System.out.println(Arrays.toString(graph.iterativeDepthFirstSearch().toArray()));
@@ -139,12 +510,20 @@ public class GraphCalculator {
 
   /** Prints the search order of a recursive breadth first search. */
   public void printRecursiveBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveBreadthFirstSearch().toArray()));
+    try {
+      System.out.println(Arrays.toString(graph.recursiveBreadthFirstSearch().toArray()));
+    } catch (IllegalStateException e) {
+      MessageCli.SEARCH_FAILED.printMessage(e.getMessage());
+    }
   }
 
   /** Prints the search order of a recursive depth first search. */
   public void printRecursiveDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveDepthFirstSearch().toArray()));
+    try {
+      System.out.println(Arrays.toString(graph.recursiveDepthFirstSearch().toArray()));
+    } catch (IllegalStateException e) {
+      MessageCli.SEARCH_FAILED.printMessage(e.getMessage());
+    }
   }
 
   /**
@@ -153,7 +532,7 @@ public class GraphCalculator {
    * @param isPropertyTrue If the property is observed.
    * @return The prefix.
    */
-  private String prefixNot(final boolean isPropertyTrue) {
+  private static String prefixNot(final boolean isPropertyTrue) {
     return isPropertyTrue ? "" : "NOT ";
   }
 }
@@ -1,7 +1,11 @@
 package nz.ac.auckland.se281;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Scanner;
+import nz.ac.auckland.se281.datastructures.StreamingPropertyChecker;
 
 /**
  * The entry point of the graph calculator command line interface.
@@ -12,9 +16,80 @@ public class Main {
   private static final String COMMAND_PREFIX = "graph-calculator> ";
 
   public static void main(final String[] args) {
+    // Command line options run a single check instead of the interactive interface
+    if (args.length > 0) {
+      runOptions(args);
+      return;
+    }
+
     new Main(new Scanner(System.in)).start();
   }
 
+  /**
+   * Run the checks requested by the command line options, which decide properties of files too
+   * large to load. --stream-check streams the edges to decide reflexivity, symmetry and
+   * anti-symmetry, and --transitivity-check sorts the edges on disk to decide transitivity.
+   *
+   * @param args The command line options.
+   */
+  private static void runOptions(final String[] args) {
+    String streamCheck = null;
+    String transitivityCheck = null;
+    Path tempDirectory = Path.of(System.getProperty("java.io.tmpdir"));
+    long memoryBudget = StreamingPropertyChecker.DEFAULT_MEMORY_BUDGET;
+
+    for (int i = 0; i < args.length; i++) {
+      // Every option takes exactly one value
+      if (i + 1 == args.length) {
+        MessageCli.INVALID_OPTION.printMessage(args[i]);
+        return;
+      }
+
+      final String value = args[++i];
+      switch (args[i - 1]) {
+        case "--stream-check":
+          streamCheck = value;
+          break;
+        case "--transitivity-check":
+          transitivityCheck = value;
+          break;
+        case "--temp-dir":
+          tempDirectory = Path.of(value);
+          if (!Files.isDirectory(tempDirectory)) {
+            MessageCli.INVALID_OPTION.printMessage(value);
+            return;
+          }
+          break;
+        case "--memory-budget":
+          // The budget must be a positive number of bytes
+          try {
+            memoryBudget = Long.parseLong(value);
+          } catch (NumberFormatException e) {
+            memoryBudget = 0;
+          }
+          if (memoryBudget <= 0) {
+            MessageCli.INVALID_OPTION.printMessage(value);
+            return;
+          }
+          break;
+        default:
+          MessageCli.INVALID_OPTION.printMessage(args[i - 1]);
+          return;
+      }
+    }
+
+    if (streamCheck == null && transitivityCheck == null) {
+      MessageCli.INVALID_OPTION.printMessage(String.join(" ", args));
+      return;
+    }
+    if (streamCheck != null) {
+      GraphCalculator.printStreamCheck(streamCheck, tempDirectory, memoryBudget);
+    }
+    if (transitivityCheck != null) {
+      GraphCalculator.printTransitivityCheck(transitivityCheck, tempDirectory, memoryBudget);
+    }
+  }
+
   /**
    * The help menu of commands for the graph caluclator command line interface.
    *
@@ -46,6 +121,8 @@ public class Main {
 
   private GraphCalculator calculator;
 
+  private boolean explain;
+
   /**
    * Create a new command line interface.
    *
@@ -106,6 +183,8 @@ public class Main {
     // or get help if there is no file.
     if (calculator == null
         && command != Command.OPEN_FILE
+        && command != Command.OPEN_SNAPSHOT
+        && command != Command.EXPLAIN
         && command != Command.EXIT
         && command != Command.HELP) {
       MessageCli.FILE_NOT_OPEN.printMessage();
@@ -117,12 +196,27 @@ public class Main {
         final String filename = args[1];
 
         try {
-          calculator = new GraphCalculator(filename);
+          replaceCalculator(new GraphCalculator(filename));
           MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(filename);
         } catch (FileNotFoundException e) {
           MessageCli.FILE_NOT_FOUND.printMessage(filename);
         }
         break;
+      case OPEN_SNAPSHOT:
+        final String snapshot = args[1];
+
+        try {
+          replaceCalculator(GraphCalculator.openSnapshot(snapshot));
+          MessageCli.OPENED_SNAPSHOT_SUCCESSFULLY.printMessage(snapshot);
+        } catch (FileNotFoundException e) {
+          MessageCli.FILE_NOT_FOUND.printMessage(snapshot);
+        } catch (IOException e) {
+          MessageCli.SNAPSHOT_NOT_READABLE.printMessage(snapshot, String.valueOf(e.getMessage()));
+        }
+        break;
+      case SAVE_SNAPSHOT:
+        calculator.saveSnapshot(args[1]);
+        break;
       case INFO:
         calculator.printInfo();
         break;
@@ -150,12 +244,28 @@ public class Main {
       case COMPUTE_EQUIVALENCE:
         calculator.printEquivalenceClass(args[1]);
         break;
+      case COMPUTE_CLOSURE:
+        calculator.saveClosure(args[1], false);
+        break;
+      case COMPUTE_REFLEXIVE_CLOSURE:
+        calculator.saveClosure(args[1], true);
+        break;
+      case EXPLAIN:
+        explain = !explain;
+        if (calculator != null) {
+          calculator.setExplain(explain);
+        }
+        MessageCli.EXPLAIN_TOGGLED.printMessage(explain ? "on" : "off");
+        break;
       case GRAPH_SEARCH_IBFS:
         calculator.printIterativeBreadthFirstSearch();
         break;
       case GRAPH_SEARCH_IDFS:
         calculator.printDepthFirstSearch();
         break;
+      case GRAPH_SEARCH_PBFS:
+        calculator.printParallelBreadthFirstSearch();
+        break;
       case GRAPH_SEARCH_RBFS:
         calculator.printRecursiveBreadthFirstSearch();
         break;
@@ -163,6 +273,7 @@ public class Main {
         calculator.printRecursiveDepthFirstSearch();
         break;
       case EXIT:
+        replaceCalculator(null);
         MessageCli.END.printMessage();
 
         // Signal that the program should exit.
@@ -176,6 +287,22 @@ public class Main {
     return true;
   }
 
+  /**
+   * Replace the open calculator, releasing any memory held by the graph it had open.
+   *
+   * @param replacement The new calculator, or null if no file is open.
+   */
+  private void replaceCalculator(final GraphCalculator replacement) {
+    if (calculator != null) {
+      calculator.close();
+    }
+
+    calculator = replacement;
+    if (calculator != null) {
+      calculator.setExplain(explain);
+    }
+  }
+
   /**
    * Check that the correct number of arguments were provided for the command.
    *
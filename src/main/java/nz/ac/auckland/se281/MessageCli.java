@@ -15,13 +15,38 @@ public enum MessageCli {
   OPENED_FILE_SUCCESSFULLY("Successfully opened graph from file %s"),
   FILE_NOT_OPEN("Error: no valid file open"),
   FILE_NOT_FOUND("Error: file '%s' not found in `testcases` folder"),
+  OPENED_SNAPSHOT_SUCCESSFULLY("Successfully opened graph snapshot from file %s"),
+  SAVED_SNAPSHOT_SUCCESSFULLY("Successfully saved graph snapshot to file %s"),
+  SNAPSHOT_NOT_READABLE("Error: file '%s' is not a readable graph snapshot: %s"),
+  SNAPSHOT_NOT_SAVED("Error: could not save graph snapshot to file '%s': %s"),
   INFO("File name: %s"),
+  LOAD_THROUGHPUT("Loaded %s bytes in %s ms (%s MB/s)"),
+  OFF_HEAP_FOOTPRINT("Off-heap edge storage: %s bytes"),
 
   GRAPH_REFLEXIVE("The graph is %sreflexive"),
   GRAPH_SYMMETRIC("The graph is %ssymmetric"),
   GRAPH_ANTI_SYMMETRIC("The graph is %santisymmetric"),
   GRAPH_EQUIVALENCE("The graph is %san equivalence relation"),
   GRAPH_TRANSITIVE("The graph is %stransitive"),
+  EXPLAIN_TOGGLED("Explanations of failed property checks are %s"),
+  NOT_REFLEXIVE_WITNESS("Counterexample: vertex %s has no edge to itself"),
+  NOT_SYMMETRIC_WITNESS("Counterexample: edge %s -> %s has no reverse edge"),
+  NOT_ANTI_SYMMETRIC_WITNESS("Counterexample: edges %s -> %s and %s -> %s both exist"),
+  NOT_TRANSITIVE_WITNESS("Counterexample: edges %s -> %s and %s -> %s exist but %s -> %s does not"),
+
+  SEARCH_FAILED("Error: %s"),
+  CLOSURE_SAVED("Saved the %s closure with %s edges to file %s"),
+  CLOSURE_NOT_COMPUTED("Error: could not compute the closure of the graph: %s"),
+  CLOSURE_NOT_SAVED("Error: could not save the closure to file '%s': %s"),
+
+  STREAM_CHECKED("Streamed %s edges between %s verticies in %s ms, spilling %s bytes to disk"),
+  TRANSITIVITY_CHECKED(
+      "Checked %s paths of two edges against %s edges in %s ms, spilling %s bytes to disk"),
+  STREAM_CHECK_FAILED("Error: could not stream check file '%s': %s"),
+  INVALID_OPTION(
+      "Error! Invalid command line option: \"%s\" (expected --stream-check <FILENAME> and/or"
+          + " --transitivity-check <FILENAME>, with optional --memory-budget <BYTES> and"
+          + " --temp-dir <DIRECTORY>)"),
 
   END("You closed the terminal. Goodbye.");
 
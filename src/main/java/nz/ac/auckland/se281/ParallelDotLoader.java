@@ -0,0 +1,242 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import nz.ac.auckland.se281.datastructures.GraphBuilder;
+
+/**
+ * Loads large DOT files by splitting the statements of the graph into newline aligned byte ranges
+ * and parsing each range on a fork join worker.
+ *
+ * <p>Each worker interns the verticies it sees to its own local indices and packs every edge into
+ * a long of two local indices, so workers never share state. Once every range has been parsed the
+ * local indices are translated to the indices of the graph builder one range at a time.
+ *
+ * <p>A range can only be parsed on its own if no statement or block comment crosses the newline it
+ * starts at. When that is not the case the range fails to parse, and the caller is told to read
+ * the file sequentially instead.
+ */
+public class ParallelDotLoader {
+  /** Files smaller than this are read sequentially, as splitting them is not worth the overhead. */
+  public static final long DEFAULT_PARALLEL_BYTE_THRESHOLD = 1 << 18;
+
+  /** Ranges are made at least this long by default, so each worker has enough to parse. */
+  public static final long DEFAULT_MIN_RANGE_BYTES = 1 << 16;
+
+  private static final long MAX_RANGE_BYTES = 1 << 30;
+  private static final int RANGES_PER_WORKER = 4;
+  private static final int SCAN_BYTES = 1 << 12;
+
+  /** The verticies and edges found in one range, using indices local to the range. */
+  private static class RangeResult {
+    private final List<String> verticies = new ArrayList<String>();
+    private long[] edges = new long[16];
+    private int edgeCount;
+    private boolean closed;
+    private boolean failed;
+  }
+
+  private final ForkJoinPool pool;
+  private long parallelByteThreshold = DEFAULT_PARALLEL_BYTE_THRESHOLD;
+  private long minRangeBytes = DEFAULT_MIN_RANGE_BYTES;
+
+  /**
+   * Loads large DOT files using the workers of a fork join pool.
+   *
+   * @param pool the pool that parses the ranges.
+   */
+  public ParallelDotLoader(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /** Loads large DOT files using the common fork join pool. */
+  public ParallelDotLoader() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Sets the size from which files are read in parallel.
+   *
+   * @param parallelByteThreshold the smallest file in bytes to read in parallel.
+   */
+  public void setParallelByteThreshold(long parallelByteThreshold) {
+    if (parallelByteThreshold < 0) {
+      throw new IllegalArgumentException("the parallel byte threshold must not be negative");
+    }
+    this.parallelByteThreshold = parallelByteThreshold;
+  }
+
+  public long getParallelByteThreshold() {
+    return parallelByteThreshold;
+  }
+
+  /**
+   * Sets the smallest range of the file that is given to a worker. Ranges are extended to the end
+   * of the line they stop in, so they may be longer.
+   *
+   * @param minRangeBytes the smallest range in bytes.
+   */
+  public void setMinRangeBytes(long minRangeBytes) {
+    if (minRangeBytes < 1 || minRangeBytes > MAX_RANGE_BYTES) {
+      throw new IllegalArgumentException(
+          "the smallest range must hold between 1 and " + MAX_RANGE_BYTES + " bytes");
+    }
+    this.minRangeBytes = minRangeBytes;
+  }
+
+  public long getMinRangeBytes() {
+    return minRangeBytes;
+  }
+
+  /**
+   * Reads a DOT file in parallel, adding every vertex and edge to a graph builder.
+   *
+   * @param channel the channel of the file to read.
+   * @param builder the builder to add the verticies and edges to, which is left untouched if the
+   *     file cannot be read in parallel.
+   * @return true if the file was read, false if it must be read sequentially instead.
+   * @throws IOException if the file cannot be read.
+   */
+  public boolean read(FileChannel channel, GraphBuilder<String> builder) throws IOException {
+    long size = channel.size();
+    if (size < parallelByteThreshold) {
+      return false;
+    }
+
+    // Read the header sequentially to find where the statements start
+    long bodyStart;
+    try {
+      DotReader header = new DotReader(channel);
+      header.readHeader();
+      bodyStart = header.offset();
+    } catch (DotReader.UnsupportedSyntaxException e) {
+      return false;
+    }
+
+    // Split the statements into ranges that each start at the beginning of a line
+    long rangeBytes = (size - bodyStart) / ((long) pool.getParallelism() * RANGES_PER_WORKER);
+    rangeBytes = Math.min(Math.max(rangeBytes, minRangeBytes), MAX_RANGE_BYTES);
+    List<Long> boundaries = new ArrayList<Long>();
+    boundaries.add(bodyStart);
+    long boundary = bodyStart;
+    while (boundary < size) {
+      boundary = nextLineStart(channel, Math.min(boundary + rangeBytes, size));
+      if (boundary - boundaries.get(boundaries.size() - 1) > Integer.MAX_VALUE) {
+        // A single line is too long to map as one range
+        return false;
+      }
+      boundaries.add(boundary);
+    }
+
+    // Parse every range on a worker of the pool
+    List<ForkJoinTask<RangeResult>> tasks = new ArrayList<ForkJoinTask<RangeResult>>();
+    for (int i = 0; i + 1 < boundaries.size(); i++) {
+      long start = boundaries.get(i);
+      long end = boundaries.get(i + 1);
+      tasks.add(pool.submit(() -> parseRange(channel, start, end)));
+    }
+    List<RangeResult> results = new ArrayList<RangeResult>();
+    try {
+      for (ForkJoinTask<RangeResult> task : tasks) {
+        results.add(task.join());
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    // Only the last range may hold the closing brace, and every range must have parsed on its own
+    for (int i = 0; i < results.size(); i++) {
+      RangeResult result = results.get(i);
+      if (result.failed || result.closed != (i == results.size() - 1)) {
+        return false;
+      }
+    }
+
+    // Translate the local indices of each range to the indices of the builder
+    for (RangeResult result : results) {
+      int[] indices = new int[result.verticies.size()];
+      for (int local = 0; local < indices.length; local++) {
+        indices[local] = builder.addVertex(result.verticies.get(local));
+      }
+      for (int i = 0; i < result.edgeCount; i++) {
+        long edge = result.edges[i];
+        builder.addEdge(indices[(int) (edge >>> 32)], indices[(int) edge]);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses the statements in one range of the file.
+   *
+   * @param channel the channel of the file.
+   * @param start the offset of the first byte of the range.
+   * @param end the offset just past the last byte of the range.
+   * @return the verticies and edges found in the range.
+   */
+  private static RangeResult parseRange(FileChannel channel, long start, long end) {
+    RangeResult result = new RangeResult();
+    try {
+      ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      DotReader reader = new DotReader(bytes);
+      result.closed =
+          reader.readStatements(
+              new DotReader.Listener() {
+                @Override
+                public int vertex(String name) {
+                  result.verticies.add(name);
+                  return result.verticies.size() - 1;
+                }
+
+                @Override
+                public void edge(int source, int destination) {
+                  if (result.edgeCount == result.edges.length) {
+                    result.edges = Arrays.copyOf(result.edges, result.edges.length * 2);
+                  }
+                  result.edges[result.edgeCount++] = ((long) source << 32) | destination;
+                }
+              });
+
+      // The range holding the closing brace must end with the graph
+      if (result.closed) {
+        reader.readTrailer();
+      }
+    } catch (DotReader.UnsupportedSyntaxException e) {
+      result.failed = true;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+
+  /**
+   * Finds the start of the line after an offset of the file.
+   *
+   * @param channel the channel of the file.
+   * @param offset the offset to search from.
+   * @return the offset just past the next newline at or after the given offset, or the size of the
+   *     file if there is no such newline.
+   */
+  private static long nextLineStart(FileChannel channel, long offset) throws IOException {
+    ByteBuffer scan = ByteBuffer.allocate(SCAN_BYTES);
+    long size = channel.size();
+    while (offset < size) {
+      scan.clear();
+      int read = channel.read(scan, offset);
+      for (int i = 0; i < read; i++) {
+        if (scan.get(i) == '\n') {
+          return offset + i + 1;
+        }
+      }
+      offset += Math.max(read, 0);
+    }
+    return size;
+  }
+}
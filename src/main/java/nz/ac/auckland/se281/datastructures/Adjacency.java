@@ -0,0 +1,102 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.Closeable;
+
+/**
+ * The adjacency of a graph over dense int vertex ids, stored as compressed sparse rows.
+ *
+ * <p>The successors of vertex {@code v} are the targets at indices {@code rowStart(v)} up to (but
+ * not including) {@code rowEnd(v)}, in ascending id order. Implementations may keep the rows on
+ * the heap or read them from memory outside of it, and every index fits in an int, so a graph has
+ * at most {@link Integer#MAX_VALUE} edges.
+ */
+public interface Adjacency extends Closeable {
+
+  int vertexCount();
+
+  int edgeCount();
+
+  /**
+   * Gets the index in the targets where the row of a vertex starts.
+   *
+   * @param vertex the id of the vertex.
+   * @return the first index of the row.
+   */
+  int rowStart(int vertex);
+
+  /**
+   * Gets the index in the targets just past the end of the row of a vertex.
+   *
+   * @param vertex the id of the vertex.
+   * @return the index after the last element of the row.
+   */
+  int rowEnd(int vertex);
+
+  /**
+   * Gets the successor id stored at an index of the targets.
+   *
+   * @param index the index in the targets.
+   * @return the successor id at the index.
+   */
+  int target(int index);
+
+  /**
+   * Gets the number of successors of a vertex.
+   *
+   * @param vertex the id of the vertex.
+   * @return the out degree of the vertex.
+   */
+  default int outDegree(int vertex) {
+    return rowEnd(vertex) - rowStart(vertex);
+  }
+
+  /**
+   * Finds whether the rows are stored in heap arrays, where building further heap indices over
+   * them is reasonable.
+   *
+   * @return true if the rows are on the heap, false if they are stored outside of it.
+   */
+  default boolean isOnHeap() {
+    return true;
+  }
+
+  /**
+   * Gets the number of bytes of memory outside of the heap that this adjacency has allocated.
+   * Memory mapped from a file is not counted, as it belongs to the page cache.
+   *
+   * @return the number of off-heap bytes allocated.
+   */
+  default long offHeapBytes() {
+    return 0;
+  }
+
+  /** Releases any memory held outside of the heap. The adjacency must not be used afterwards. */
+  @Override
+  default void close() {}
+
+  /**
+   * Finds whether there is an edge from one vertex to another by binary searching the sorted row.
+   *
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   * @return true if the edge exists, false otherwise.
+   */
+  default boolean contains(int source, int destination) {
+    int low = rowStart(source);
+    int high = rowEnd(source) - 1;
+
+    // Binary search the row, which is sorted in ascending order
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int target = target(middle);
+      if (target < destination) {
+        low = middle + 1;
+      } else if (target > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,97 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * A square matrix of bits where each row is stored as a bitset of 64 bit words.
+ *
+ * <p>Row operations work on whole words, so comparing two rows checks 64 columns at a time.
+ */
+public class BitMatrix {
+  private final int size;
+  private final long[][] rows;
+
+  /**
+   * A square matrix of bits with every bit cleared.
+   *
+   * @param size the number of rows and columns in the matrix.
+   */
+  public BitMatrix(int size) {
+    this.size = size;
+    int words = wordCount(size);
+    rows = new long[size][words];
+  }
+
+  /**
+   * Builds the adjacency matrix of a graph, where bit (u, v) is set if there is an edge from u to
+   * v.
+   *
+   * @param adjacency the adjacency of the graph.
+   * @return the adjacency matrix of the graph.
+   */
+  public static BitMatrix fromAdjacency(Adjacency adjacency) {
+    BitMatrix matrix = new BitMatrix(adjacency.vertexCount());
+    for (int row = 0; row < adjacency.vertexCount(); row++) {
+      for (int i = adjacency.rowStart(row); i < adjacency.rowEnd(row); i++) {
+        matrix.set(row, adjacency.target(i));
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * Gets the number of words needed to store a row of a matrix.
+   *
+   * @param size the number of columns in the matrix.
+   * @return the number of 64 bit words in each row.
+   */
+  public static int wordCount(int size) {
+    return (size + 63) >>> 6;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Sets a bit of the matrix.
+   *
+   * @param row the row of the bit.
+   * @param column the column of the bit.
+   */
+  public void set(int row, int column) {
+    rows[row][column >>> 6] |= 1L << column;
+  }
+
+  /**
+   * Gets a bit of the matrix.
+   *
+   * @param row the row of the bit.
+   * @param column the column of the bit.
+   * @return true if the bit is set, false otherwise.
+   */
+  public boolean get(int row, int column) {
+    return (rows[row][column >>> 6] & (1L << column)) != 0;
+  }
+
+  /**
+   * Finds whether every bit set in one row is also set in another row, only comparing the words
+   * that hold the given range of columns.
+   *
+   * @param subset the row that should be contained in the other row.
+   * @param superset the row that should contain the other row.
+   * @param fromColumn the first column that may be set in the subset row.
+   * @param toColumn the last column that may be set in the subset row.
+   * @return true if the subset row is contained in the superset row, false otherwise.
+   */
+  public boolean isSubset(int subset, int superset, int fromColumn, int toColumn) {
+    long[] sub = rows[subset];
+    long[] sup = rows[superset];
+
+    // A word of the subset row that has a bit the superset row lacks survives the AND-NOT
+    for (int word = fromColumn >>> 6; word <= toColumn >>> 6; word++) {
+      if ((sub[word] & ~sup[word]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
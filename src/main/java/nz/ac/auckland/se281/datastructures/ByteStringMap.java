@@ -0,0 +1,162 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A map from byte strings to non-negative ints stored in a primitive open addressing hash table
+ * with linear probing.
+ *
+ * <p>The bytes of every key are copied once into a single shared array, so looking up a key that
+ * is already in the map does not allocate. Each slot of the table packs the hash of its key with
+ * the index of its entry, so most probes never touch the entries, and the start, length and value
+ * of each entry are stored next to each other.
+ */
+public class ByteStringMap {
+  private static final long EMPTY = -1L;
+  private static final int RECORD_SIZE = 3;
+
+  private long[] slots;
+  private int mask;
+  private int size;
+
+  private int[] records;
+  private byte[] keys;
+  private int keysLength;
+
+  /** A map from byte strings to non-negative ints. */
+  public ByteStringMap() {
+    slots = new long[16];
+    Arrays.fill(slots, EMPTY);
+    mask = slots.length - 1;
+    size = 0;
+
+    records = new int[8 * RECORD_SIZE];
+    keys = new byte[256];
+    keysLength = 0;
+  }
+
+  /**
+   * Gets the value of a key.
+   *
+   * @param key the array holding the key at its start.
+   * @param length the number of bytes in the key.
+   * @return the value of the key, or -1 if the key is not in the map.
+   */
+  public int get(byte[] key, int length) {
+    int hash = hash(key, length);
+
+    // Probe until the key or an empty slot is found, only comparing keys when the hashes match
+    int slot = hash & mask;
+    while (slots[slot] != EMPTY) {
+      if ((int) (slots[slot] >>> 32) == hash) {
+        int record = (int) slots[slot] * RECORD_SIZE;
+        if (matches(record, key, length)) {
+          return records[record + 2];
+        }
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Adds a key that is not already in the map.
+   *
+   * @param key the array holding the key at its start.
+   * @param length the number of bytes in the key.
+   * @param value the non-negative value of the key.
+   */
+  public void put(byte[] key, int length, int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("values must be non-negative");
+    }
+
+    // Grow the table before it becomes more than half full, and the records when they are full
+    if ((size + 1) * 2 > slots.length) {
+      resize();
+    }
+    if ((size + 1) * RECORD_SIZE > records.length) {
+      records = Arrays.copyOf(records, records.length * 2);
+    }
+    if (keysLength + length > keys.length) {
+      keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keysLength + length));
+    }
+
+    // Copy the key into the shared key array and record the new entry
+    int entry = size++;
+    int record = entry * RECORD_SIZE;
+    System.arraycopy(key, 0, keys, keysLength, length);
+    records[record] = keysLength;
+    records[record + 1] = length;
+    records[record + 2] = value;
+    keysLength += length;
+
+    int hash = hash(key, length);
+    int slot = hash & mask;
+    while (slots[slot] != EMPTY) {
+      slot = (slot + 1) & mask;
+    }
+    slots[slot] = LongHashSet.pack(hash, entry);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds whether an entry holds the given key.
+   *
+   * @param record the index of the record of the entry.
+   * @param key the array holding the key at its start.
+   * @param length the number of bytes in the key.
+   * @return true if the entry holds the key, false otherwise.
+   */
+  private boolean matches(int record, byte[] key, int length) {
+    if (records[record + 1] != length) {
+      return false;
+    }
+    int start = records[record];
+    for (int i = 0; i < length; i++) {
+      if (keys[start + i] != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Doubles the capacity of the table and reinserts every slot. */
+  private void resize() {
+    long[] old = slots;
+    slots = new long[old.length * 2];
+    Arrays.fill(slots, EMPTY);
+    mask = slots.length - 1;
+
+    for (long packed : old) {
+      if (packed != EMPTY) {
+        int slot = (int) (packed >>> 32) & mask;
+        while (slots[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = packed;
+      }
+    }
+  }
+
+  /**
+   * Hashes a byte string with FNV-1a and mixes the result so short numeric keys spread evenly.
+   *
+   * @param key the array holding the key at its start.
+   * @param length the number of bytes in the key.
+   * @return the hash of the key.
+   */
+  private static int hash(byte[] key, int length) {
+    int hash = 0x811c9dc5;
+    for (int i = 0; i < length; i++) {
+      hash = (hash ^ key[i]) * 0x01000193;
+    }
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    return hash;
+  }
+}
@@ -0,0 +1,163 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An immutable compressed sparse row (CSR) adjacency structure over dense int vertex ids, stored in
+ * heap arrays.
+ *
+ * <p>The successors of vertex {@code v} are stored in {@code targets[offsets[v]]} up to (but not
+ * including) {@code targets[offsets[v + 1]]}, in ascending id order.
+ */
+public class CsrAdjacency implements Adjacency {
+  private final int[] offsets;
+  private final int[] targets;
+
+  /**
+   * An immutable compressed sparse row adjacency structure.
+   *
+   * @param offsets the start index of each row in targets, with one extra trailing entry.
+   * @param targets the successor ids of every row, each row sorted in ascending order.
+   */
+  public CsrAdjacency(int[] offsets, int[] targets) {
+    // The offsets need a trailing entry that marks the end of the last row
+    if (offsets.length == 0 || offsets[offsets.length - 1] != targets.length) {
+      throw new IllegalArgumentException("offsets do not describe the targets array");
+    }
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Builds the adjacency of a graph from its edges in bulk. The edges are grouped by source with a
+   * counting pass, each row is sorted once and duplicate edges are removed, so construction takes
+   * O(E log d) time for a largest out degree of d.
+   *
+   * @param vertexCount the number of verticies, whose ids are 0 to vertexCount - 1.
+   * @param sources the source id of each edge.
+   * @param destinations the destination id of each edge.
+   * @param edgeCount the number of edges stored at the start of the sources and destinations.
+   * @return the adjacency of the graph.
+   */
+  public static CsrAdjacency fromEdges(
+      int vertexCount, int[] sources, int[] destinations, int edgeCount) {
+    // Count the out degree of every vertex, shifted by one so the prefix sum gives the offsets
+    int[] offsets = new int[vertexCount + 1];
+    for (int i = 0; i < edgeCount; i++) {
+      offsets[sources[i] + 1]++;
+    }
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      offsets[vertex + 1] += offsets[vertex];
+    }
+
+    // Scatter each destination into the row of its source
+    int[] targets = new int[edgeCount];
+    int[] next = Arrays.copyOf(offsets, vertexCount);
+    for (int i = 0; i < edgeCount; i++) {
+      targets[next[sources[i]]++] = destinations[i];
+    }
+
+    // Sort each row and compact it to remove duplicate edges, moving it down over any space freed
+    // by earlier rows
+    int count = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int start = offsets[vertex];
+      int end = offsets[vertex + 1];
+      Arrays.sort(targets, start, end);
+
+      offsets[vertex] = count;
+      for (int i = start; i < end; i++) {
+        if (i == start || targets[i] != targets[i - 1]) {
+          targets[count++] = targets[i];
+        }
+      }
+    }
+    offsets[vertexCount] = count;
+
+    // Trim the targets if any duplicates were removed
+    if (count < targets.length) {
+      targets = Arrays.copyOf(targets, count);
+    }
+    return new CsrAdjacency(offsets, targets);
+  }
+
+  @Override
+  public int vertexCount() {
+    return offsets.length - 1;
+  }
+
+  @Override
+  public int edgeCount() {
+    return targets.length;
+  }
+
+  /**
+   * Gets the index in the targets array where the row of a vertex starts.
+   *
+   * @param vertex the id of the vertex.
+   * @return the first index of the row.
+   */
+  @Override
+  public int rowStart(int vertex) {
+    return offsets[vertex];
+  }
+
+  /**
+   * Gets the index in the targets array just past the end of the row of a vertex.
+   *
+   * @param vertex the id of the vertex.
+   * @return the index after the last element of the row.
+   */
+  @Override
+  public int rowEnd(int vertex) {
+    return offsets[vertex + 1];
+  }
+
+  /**
+   * Gets the successor id stored at an index of the targets array.
+   *
+   * @param index the index in the targets array.
+   * @return the successor id at the index.
+   */
+  @Override
+  public int target(int index) {
+    return targets[index];
+  }
+
+  /**
+   * Gets the number of successors of a vertex.
+   *
+   * @param vertex the id of the vertex.
+   * @return the out degree of the vertex.
+   */
+  @Override
+  public int outDegree(int vertex) {
+    return offsets[vertex + 1] - offsets[vertex];
+  }
+
+  /**
+   * Finds whether there is an edge from one vertex to another by binary searching the sorted row.
+   *
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   * @return true if the edge exists, false otherwise.
+   */
+  @Override
+  public boolean contains(int source, int destination) {
+    int low = offsets[source];
+    int high = offsets[source + 1] - 1;
+
+    // Binary search the row, which is sorted in ascending order
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (targets[middle] < destination) {
+        low = middle + 1;
+      } else if (targets[middle] > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+}
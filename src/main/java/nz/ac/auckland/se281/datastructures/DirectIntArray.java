@@ -0,0 +1,190 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A fixed length array of ints stored in direct buffers outside of the heap, so very large arrays
+ * neither count against the heap size nor have to be scanned by the garbage collector.
+ *
+ * <p>A direct buffer holds at most 2 GB, so the array is split into segments of {@code 2^28} ints
+ * that are each allocated separately. The ints are stored in the native byte order.
+ *
+ * <p>Releasing the array frees the buffers straight away through the cleaner of each buffer, as
+ * there is no other way to free a direct buffer before the foreign memory API. If the cleaner
+ * cannot be reached, releasing the array only drops the buffers, and their memory is freed
+ * whenever the garbage collector clears them.
+ */
+public class DirectIntArray {
+  private static final int SEGMENT_SHIFT = 28;
+  private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+  // Frees a direct buffer without waiting for the garbage collector, or null if it is not available
+  private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+  private ByteBuffer[] buffers;
+  private IntBuffer[] segments;
+  private final int length;
+  private boolean freed;
+
+  /**
+   * A direct array of ints that are all zero.
+   *
+   * @param length the number of ints in the array.
+   */
+  public DirectIntArray(int length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("the length must not be negative");
+    }
+    this.length = length;
+
+    int segmentCount = (int) (((long) length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    buffers = new ByteBuffer[segmentCount];
+    segments = new IntBuffer[segmentCount];
+    for (int segment = 0; segment < segmentCount; segment++) {
+      long count = Math.min(1L << SEGMENT_SHIFT, length - ((long) segment << SEGMENT_SHIFT));
+      buffers[segment] =
+          ByteBuffer.allocateDirect((int) (count * Integer.BYTES)).order(ByteOrder.nativeOrder());
+      segments[segment] = buffers[segment].asIntBuffer();
+    }
+  }
+
+  /**
+   * Finds the method of the JDK that runs the cleaner of a direct buffer.
+   *
+   * @return the method bound to its receiver, or null if it cannot be reached.
+   */
+  private static MethodHandle findCleaner() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return MethodHandles.lookup()
+          .findVirtual(
+              unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+          .bindTo(field.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Gets the number of bytes allocated outside of the heap for the array.
+   *
+   * @return the number of bytes, or 0 once the array has been released and its memory freed. An
+   *     array released without a cleaner is still counted, as its memory is not known to be freed.
+   */
+  public long byteSize() {
+    return freed ? 0 : (long) length * Integer.BYTES;
+  }
+
+  /**
+   * Gets an element of the array.
+   *
+   * @param index the index of the element.
+   * @return the element.
+   */
+  public int get(int index) {
+    return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+  }
+
+  /**
+   * Sets an element of the array.
+   *
+   * @param index the index of the element.
+   * @param value the new value of the element.
+   */
+  public void set(int index, int value) {
+    segments[index >>> SEGMENT_SHIFT].put(index & SEGMENT_MASK, value);
+  }
+
+  /**
+   * Copies a run of the array into a heap array.
+   *
+   * @param from the index of the first element to copy.
+   * @param destination the array to copy into, from its start.
+   * @param count the number of elements to copy.
+   */
+  public void get(int from, int[] destination, int count) {
+    // Copy in bulk from each segment the run overlaps
+    int copied = 0;
+    while (copied < count) {
+      int index = from + copied;
+      IntBuffer segment = segments[index >>> SEGMENT_SHIFT];
+      int offset = index & SEGMENT_MASK;
+      int run = Math.min(count - copied, segment.capacity() - offset);
+      segment.get(offset, destination, copied, run);
+      copied += run;
+    }
+  }
+
+  /**
+   * Copies a run of a heap array into the array.
+   *
+   * @param from the index of the first element to set.
+   * @param source the array to copy from, from its start.
+   * @param count the number of elements to copy.
+   */
+  public void set(int from, int[] source, int count) {
+    // Copy in bulk into each segment the run overlaps
+    int copied = 0;
+    while (copied < count) {
+      int index = from + copied;
+      IntBuffer segment = segments[index >>> SEGMENT_SHIFT];
+      int offset = index & SEGMENT_MASK;
+      int run = Math.min(count - copied, segment.capacity() - offset);
+      segment.put(offset, source, copied, run);
+      copied += run;
+    }
+  }
+
+  /**
+   * Copies the array into a new direct array of a different length, truncating it or padding it
+   * with zeros. The copy is made segment by segment without going through the heap.
+   *
+   * @param newLength the length of the copy.
+   * @return the copy.
+   */
+  public DirectIntArray copyOf(int newLength) {
+    DirectIntArray copy = new DirectIntArray(newLength);
+    int count = Math.min(length, newLength);
+    for (int segment = 0; (long) segment << SEGMENT_SHIFT < count; segment++) {
+      long first = (long) segment << SEGMENT_SHIFT;
+      int run = (int) Math.min(segments[segment].capacity(), count - first);
+      copy.segments[segment].put(0, segments[segment], 0, run);
+    }
+    return copy;
+  }
+
+  /**
+   * Releases the segments of the array, freeing the memory outside of the heap straight away if
+   * the cleaner of the buffers can be reached. The array must not be used afterwards.
+   */
+  public void release() {
+    if (segments == null) {
+      return;
+    }
+    segments = null;
+    ByteBuffer[] released = buffers;
+    buffers = null;
+    if (INVOKE_CLEANER != null) {
+      try {
+        for (ByteBuffer buffer : released) {
+          INVOKE_CLEANER.invokeExact(buffer);
+        }
+      } catch (Throwable e) {
+        throw new IllegalStateException("the direct buffers could not be freed", e);
+      }
+      freed = true;
+    }
+  }
+}
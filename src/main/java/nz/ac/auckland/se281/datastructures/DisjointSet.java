@@ -0,0 +1,71 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * A disjoint set forest over the int ids 0 to size - 1, using path compression and union by rank
+ * so that each operation takes near constant amortised time.
+ */
+public class DisjointSet {
+  private final int[] parent;
+  private final byte[] rank;
+
+  /**
+   * A disjoint set forest where every id starts in its own set.
+   *
+   * @param size the number of ids in the forest.
+   */
+  public DisjointSet(int size) {
+    parent = new int[size];
+    rank = new byte[size];
+    for (int i = 0; i < size; i++) {
+      parent[i] = i;
+    }
+  }
+
+  /**
+   * Finds the representative id of the set that contains an id.
+   *
+   * @param id the id to look up.
+   * @return the representative id of the set.
+   */
+  public int find(int id) {
+    // Walk up to the root of the tree
+    int root = id;
+    while (parent[root] != root) {
+      root = parent[root];
+    }
+
+    // Point every id on the path directly at the root
+    while (parent[id] != root) {
+      int next = parent[id];
+      parent[id] = root;
+      id = next;
+    }
+    return root;
+  }
+
+  /**
+   * Merges the sets that contain two ids.
+   *
+   * @param a the first id.
+   * @param b the second id.
+   * @return true if the ids were in different sets, false otherwise.
+   */
+  public boolean union(int a, int b) {
+    int rootA = find(a);
+    int rootB = find(b);
+    if (rootA == rootB) {
+      return false;
+    }
+
+    // Attach the shorter tree below the taller tree
+    if (rank[rootA] < rank[rootB]) {
+      parent[rootA] = rootB;
+    } else if (rank[rootA] > rank[rootB]) {
+      parent[rootB] = rootA;
+    } else {
+      parent[rootB] = rootA;
+      rank[rootA]++;
+    }
+    return true;
+  }
+}
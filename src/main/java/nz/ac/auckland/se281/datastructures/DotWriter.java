@@ -0,0 +1,61 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes graphs to files in the subset of the DOT language that the test cases use, so they can be
+ * opened again like any other test case.
+ *
+ * <p>Every vertex is written as a bare id before the edges, so verticies without any edges are not
+ * lost, and the edges are written in ascending order of source and then destination.
+ */
+public class DotWriter {
+  private DotWriter() {}
+
+  /**
+   * Writes a graph to a DOT file, replacing the file if it exists.
+   *
+   * @param graph the graph to write.
+   * @param file the file to write the graph to.
+   * @param name the name of the digraph.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(Graph<?> graph, Path file, String name) throws IOException {
+    VertexDictionary<?> dictionary = graph.getDictionary();
+    Adjacency adjacency = graph.getAdjacency();
+    String[] names = new String[dictionary.size()];
+    for (int vertex = 0; vertex < names.length; vertex++) {
+      names[vertex] = String.valueOf(dictionary.vertexOf(vertex));
+    }
+
+    // Write to a temporary file that is moved over the file once it is complete, so a failed write
+    // never leaves half a graph behind
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+      writer.write("digraph " + name + " {\n");
+      for (String vertex : names) {
+        writer.write("  " + vertex + ";\n");
+      }
+      for (int vertex = 0; vertex < names.length; vertex++) {
+        for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+          writer.write("  ");
+          writer.write(names[vertex]);
+          writer.write(" -> ");
+          writer.write(names[adjacency.target(i)]);
+          writer.write(";\n");
+        }
+      }
+      writer.write("}\n");
+    } catch (IOException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    Files.move(
+        temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
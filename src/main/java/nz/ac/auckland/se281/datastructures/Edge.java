@@ -1,5 +1,7 @@
 package nz.ac.auckland.se281.datastructures;
 
+import java.util.Objects;
+
 /**
  * An edge in a graph that connects two verticies.
  *
@@ -23,4 +25,22 @@ public class Edge<T> {
   public T getDestination() {
     return destination;
   }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Edge)) {
+      return false;
+    }
+    // Two edges are equal if they connect the same source to the same destination
+    Edge<?> other = (Edge<?>) obj;
+    return Objects.equals(source, other.source) && Objects.equals(destination, other.destination);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(source, destination);
+  }
 }
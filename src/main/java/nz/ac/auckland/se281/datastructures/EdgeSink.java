@@ -0,0 +1,28 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Something that consumes a relation as a stream of verticies and edges, such as a checker that
+ * decides properties of relations too large to load as a graph.
+ */
+public interface EdgeSink extends Closeable {
+
+  /**
+   * Adds a vertex.
+   *
+   * @return the id of the vertex, which is used by the edges that start or end at it.
+   */
+  int addVertex();
+
+  /**
+   * Adds an edge between two verticies that have been added. The same edge may be added more than
+   * once.
+   *
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   * @throws IOException if the edge cannot be spilled to disk.
+   */
+  void addEdge(int source, int destination) throws IOException;
+}
@@ -0,0 +1,115 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An index of the equivalence classes of an equivalence relation over int vertex ids.
+ *
+ * <p>Classes are numbered in ascending order of their smallest member, and the members of class
+ * {@code c} are stored in ascending order from {@code memberStart(c)} up to (but not including)
+ * {@code memberEnd(c)}.
+ */
+public class EquivalenceClasses {
+  private final int[] classOf;
+  private final int[] offsets;
+  private final int[] members;
+
+  /**
+   * Builds the equivalence classes of a relation by merging the endpoints of every edge in a
+   * disjoint set forest.
+   *
+   * @param adjacency the adjacency of an equivalence relation.
+   */
+  public EquivalenceClasses(Adjacency adjacency) {
+    int size = adjacency.vertexCount();
+
+    // Merge the endpoints of every edge
+    DisjointSet sets = new DisjointSet(size);
+    for (int vertex = 0; vertex < size; vertex++) {
+      for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+        sets.union(vertex, adjacency.target(i));
+      }
+    }
+
+    // Number the classes in order of their smallest member, which is the first member found when
+    // scanning the ids in ascending order
+    classOf = new int[size];
+    int[] classOfRoot = new int[size];
+    Arrays.fill(classOfRoot, -1);
+    int classCount = 0;
+    int[] counts = new int[size + 1];
+    for (int vertex = 0; vertex < size; vertex++) {
+      int root = sets.find(vertex);
+      if (classOfRoot[root] == -1) {
+        classOfRoot[root] = classCount++;
+      }
+      classOf[vertex] = classOfRoot[root];
+      counts[classOf[vertex] + 1]++;
+    }
+
+    // Group the members of each class with a counting sort, which keeps them in ascending order
+    offsets = new int[classCount + 1];
+    for (int c = 0; c < classCount; c++) {
+      offsets[c + 1] = offsets[c] + counts[c + 1];
+    }
+    members = new int[size];
+    int[] next = Arrays.copyOf(offsets, classCount);
+    for (int vertex = 0; vertex < size; vertex++) {
+      members[next[classOf[vertex]]++] = vertex;
+    }
+  }
+
+  public int classCount() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Gets the class that a vertex belongs to.
+   *
+   * @param vertex the id of the vertex.
+   * @return the number of the class.
+   */
+  public int classOf(int vertex) {
+    return classOf[vertex];
+  }
+
+  /**
+   * Gets the smallest member of a class.
+   *
+   * @param equivalenceClass the number of the class.
+   * @return the id of the smallest member.
+   */
+  public int minimum(int equivalenceClass) {
+    return members[offsets[equivalenceClass]];
+  }
+
+  /**
+   * Gets the index in the members array where a class starts.
+   *
+   * @param equivalenceClass the number of the class.
+   * @return the first index of the class.
+   */
+  public int memberStart(int equivalenceClass) {
+    return offsets[equivalenceClass];
+  }
+
+  /**
+   * Gets the index in the members array just past the end of a class.
+   *
+   * @param equivalenceClass the number of the class.
+   * @return the index after the last member of the class.
+   */
+  public int memberEnd(int equivalenceClass) {
+    return offsets[equivalenceClass + 1];
+  }
+
+  /**
+   * Gets the member id stored at an index of the members array.
+   *
+   * @param index the index in the members array.
+   * @return the id of the member.
+   */
+  public int member(int index) {
+    return members[index];
+  }
+}
@@ -0,0 +1,215 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts more longs than fit in memory and removes duplicates, using sorted runs on disk.
+ *
+ * <p>Longs are collected in a buffer, and every time the buffer fills it is sorted and written to
+ * a new run file. Finishing merges the runs into a single sorted file, a limited number of runs at
+ * a time so the read buffers of the runs being merged stay within the memory budget.
+ */
+public class ExternalLongSorter implements Closeable {
+  // Every run being merged reads through its own buffer of this many bytes
+  private static final int READ_BUFFER_BYTES = 8 << 10;
+  private static final int MIN_FAN_IN = 2;
+  private static final int MAX_FAN_IN = 256;
+
+  private final Path tempDirectory;
+  private long[] buffer;
+  private int bufferCount;
+  private final int fanIn;
+
+  private final List<Path> runs = new ArrayList<Path>();
+  private final List<Path> files = new ArrayList<Path>();
+  private long spilledBytes;
+  private long count;
+  private Path sorted;
+
+  /**
+   * Sorts longs using at most about the memory budget of heap.
+   *
+   * @param tempDirectory the directory that runs are written to.
+   * @param memoryBudget the number of bytes of longs to buffer before writing a run.
+   */
+  public ExternalLongSorter(Path tempDirectory, long memoryBudget) {
+    this.tempDirectory = tempDirectory;
+    long budget = Math.max(memoryBudget, READ_BUFFER_BYTES * MIN_FAN_IN);
+    this.buffer = new long[(int) Math.min(budget / Long.BYTES, Integer.MAX_VALUE - 8)];
+    this.fanIn = (int) Math.min(Math.max(budget / READ_BUFFER_BYTES, MIN_FAN_IN), MAX_FAN_IN);
+  }
+
+  /**
+   * Adds a long to be sorted.
+   *
+   * @param value the long to add.
+   * @throws IOException if a run cannot be written.
+   */
+  public void add(long value) throws IOException {
+    if (sorted != null) {
+      throw new IllegalStateException("the longs have already been sorted");
+    }
+    if (bufferCount == buffer.length) {
+      writeRun();
+    }
+    buffer[bufferCount++] = value;
+  }
+
+  /**
+   * Sorts every long that was added into a single file of distinct longs in ascending order.
+   *
+   * @return the sorted file, which is deleted when the sorter is closed.
+   * @throws IOException if the runs cannot be merged.
+   */
+  public Path finish() throws IOException {
+    if (sorted != null) {
+      return sorted;
+    }
+
+    // Write what is buffered as the last run and merge groups of runs until one run is left
+    if (bufferCount > 0 || runs.isEmpty()) {
+      writeRun();
+    }
+    while (runs.size() > 1) {
+      List<Path> merged = new ArrayList<Path>();
+      for (int i = 0; i < runs.size(); i += fanIn) {
+        merged.add(merge(runs.subList(i, Math.min(i + fanIn, runs.size()))));
+      }
+      runs.clear();
+      runs.addAll(merged);
+    }
+    sorted = runs.get(0);
+    count = Files.size(sorted) / Long.BYTES;
+
+    // Nothing more can be added, so the buffer is no longer needed
+    buffer = null;
+    return sorted;
+  }
+
+  /**
+   * Gets the number of distinct longs. The longs must have been sorted.
+   *
+   * @return the number of distinct longs.
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Gets the number of bytes written to run files, including the runs written by merges.
+   *
+   * @return the number of bytes written to the temporary directory.
+   */
+  public long spilledBytes() {
+    return spilledBytes;
+  }
+
+  /** Deletes every run, including the sorted file. */
+  @Override
+  public void close() throws IOException {
+    for (Path file : files) {
+      Files.deleteIfExists(file);
+    }
+    files.clear();
+    runs.clear();
+  }
+
+  /**
+   * Sorts the buffered longs and writes the distinct ones to a new run.
+   *
+   * @throws IOException if the run cannot be written.
+   */
+  private void writeRun() throws IOException {
+    Arrays.sort(buffer, 0, bufferCount);
+    LongFileWriter run = createRun();
+    try {
+      for (int i = 0; i < bufferCount; i++) {
+        if (i == 0 || buffer[i] != buffer[i - 1]) {
+          run.append(buffer[i]);
+        }
+      }
+    } finally {
+      run.close();
+    }
+    runs.add(run.getFile());
+    spilledBytes += run.bytesWritten();
+    bufferCount = 0;
+  }
+
+  /**
+   * Merges sorted runs into a new sorted run without duplicates, deleting the merged runs.
+   *
+   * @param group the runs to merge.
+   * @return the merged run.
+   * @throws IOException if the runs cannot be read or the merged run cannot be written.
+   */
+  private Path merge(List<Path> group) throws IOException {
+    if (group.size() == 1) {
+      return group.get(0);
+    }
+
+    // Keep the next long of each run, and a queue of the runs ordered by their next long
+    List<LongFileReader> readers = new ArrayList<LongFileReader>();
+    long[] heads = new long[group.size()];
+    PriorityQueue<Integer> queue =
+        new PriorityQueue<Integer>(group.size(), (x, y) -> Long.compare(heads[x], heads[y]));
+
+    LongFileWriter merged = createRun();
+    try {
+      for (Path run : group) {
+        LongFileReader reader = new LongFileReader(run);
+        readers.add(reader);
+        if (reader.hasNext()) {
+          heads[readers.size() - 1] = reader.next();
+          queue.add(readers.size() - 1);
+        }
+      }
+
+      // Repeatedly take the smallest next long of any run, skipping longs equal to the last one
+      boolean first = true;
+      long last = 0;
+      while (!queue.isEmpty()) {
+        int run = queue.poll();
+        if (first || heads[run] != last) {
+          merged.append(heads[run]);
+          last = heads[run];
+          first = false;
+        }
+        if (readers.get(run).hasNext()) {
+          heads[run] = readers.get(run).next();
+          queue.add(run);
+        }
+      }
+    } finally {
+      merged.close();
+      for (LongFileReader reader : readers) {
+        reader.close();
+      }
+      for (Path run : group) {
+        Files.deleteIfExists(run);
+        files.remove(run);
+      }
+    }
+    spilledBytes += merged.bytesWritten();
+    return merged.getFile();
+  }
+
+  /**
+   * Creates a new empty run file in the temporary directory.
+   *
+   * @return the writer of the run.
+   * @throws IOException if the file cannot be created.
+   */
+  private LongFileWriter createRun() throws IOException {
+    Path file = Files.createTempFile(tempDirectory, "run", ".sort");
+    files.add(file);
+    return new LongFileWriter(file);
+  }
+}
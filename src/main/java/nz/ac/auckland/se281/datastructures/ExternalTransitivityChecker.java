@@ -0,0 +1,260 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Decides whether a relation is transitive from a stream of its edges, keeping the edges and the
+ * paths of two edges on disk rather than in memory.
+ *
+ * <p>The edges are sorted into one file by source and another by destination. Walking both files
+ * in order of their middle vertex B joins every edge A to B with every edge B to C, producing the
+ * paths A to C that must be edges for the relation to be transitive. The paths are collected into
+ * batches that fit in the memory budget, and each batch is sorted and checked against the rows of
+ * the sorted edges, stopping at the first path that is not an edge.
+ *
+ * <p>Besides the memory budget, the checker keeps the offset of the row of every vertex in the
+ * sorted edges, which is 8 bytes per vertex.
+ */
+public class ExternalTransitivityChecker implements EdgeSink {
+  /** The number of bytes of edges and paths kept in memory by default. */
+  public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+  private static final long MIN_MEMORY_BUDGET = 1L << 16;
+
+  private final long memoryBudget;
+  private final ExternalLongSorter bySource;
+  private final ExternalLongSorter byDestination;
+
+  private int vertexCount;
+  private long edgeCount;
+  private long pathCount;
+  private boolean transitive = true;
+  private boolean finished;
+
+  // The sorted edges, the offset of each row within them and the paths waiting to be checked
+  private FileChannel edges;
+  private long[] rowStarts;
+  private long[] paths;
+  private int pathsInBatch;
+
+  /**
+   * Decides the transitivity of a relation from a stream of its edges.
+   *
+   * @param tempDirectory the directory that sorted runs are written to.
+   * @param memoryBudget the number of bytes of edges and paths to keep in memory.
+   */
+  public ExternalTransitivityChecker(Path tempDirectory, long memoryBudget) {
+    this.memoryBudget = Math.max(memoryBudget, MIN_MEMORY_BUDGET);
+
+    // Both orders of the edges are sorted at the same time, so they share the budget
+    this.bySource = new ExternalLongSorter(tempDirectory, this.memoryBudget / 2);
+    this.byDestination = new ExternalLongSorter(tempDirectory, this.memoryBudget / 2);
+  }
+
+  @Override
+  public int addVertex() {
+    return vertexCount++;
+  }
+
+  @Override
+  public void addEdge(int source, int destination) throws IOException {
+    edgeCount++;
+    bySource.add(LongHashSet.pack(source, destination));
+    byDestination.add(LongHashSet.pack(destination, source));
+  }
+
+  /**
+   * Decides transitivity once every vertex and edge has been added.
+   *
+   * @throws IOException if the edges cannot be sorted or read.
+   */
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+
+    Path sortedEdges = bySource.finish();
+    Path sortedReverse = byDestination.finish();
+    edges = FileChannel.open(sortedEdges, StandardOpenOption.READ);
+    indexRows();
+
+    // Three quarters of the budget holds paths, and the rest caches the row of the middle vertex
+    paths = new long[(int) Math.min(memoryBudget / 4 * 3 / Long.BYTES, Integer.MAX_VALUE - 8)];
+    int[] middleRow = new int[(int) Math.min(memoryBudget / 4 / Integer.BYTES, Integer.MAX_VALUE)];
+
+    try (LongFileReader reverse = new LongFileReader(sortedReverse)) {
+      while (reverse.hasNext() && transitive) {
+        // Every edge A to B with the same B is next to each other when sorted by destination
+        int middle = (int) (reverse.peek() >>> 32);
+        long rowLength = rowStarts[middle + 1] - rowStarts[middle];
+        boolean cached = rowLength <= middleRow.length;
+        if (cached && rowLength > 0) {
+          readRow(middle, middleRow);
+        }
+
+        while (reverse.hasNext() && (int) (reverse.peek() >>> 32) == middle && transitive) {
+          int source = (int) reverse.next();
+          if (rowLength == 0 || source == middle) {
+            // The paths through a self loop A to A are the edges of A, which are all there
+            continue;
+          }
+
+          // Join the edge A to B with every edge B to C, reading the row of B again if it is too
+          // long to cache
+          if (cached) {
+            for (int i = 0; i < rowLength && transitive; i++) {
+              addPath(source, middle, middleRow[i]);
+            }
+          } else {
+            try (LongFileReader row = new LongFileReader(edges, rowStarts[middle], rowLength)) {
+              while (row.hasNext() && transitive) {
+                addPath(source, middle, (int) row.next());
+              }
+            }
+          }
+        }
+      }
+    }
+    if (transitive) {
+      checkPaths();
+    }
+    paths = null;
+  }
+
+  public boolean isTransitive() {
+    if (!finished) {
+      throw new IllegalStateException("the edge stream has not been finished");
+    }
+    return transitive;
+  }
+
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  public long edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Gets the number of paths of two edges that were checked, before the first one that is not an
+   * edge if the relation is not transitive.
+   *
+   * @return the number of paths checked.
+   */
+  public long pathCount() {
+    return pathCount;
+  }
+
+  /**
+   * Gets the number of bytes written to disk while sorting the edges.
+   *
+   * @return the number of bytes written to the temporary directory.
+   */
+  public long spilledBytes() {
+    return bySource.spilledBytes() + byDestination.spilledBytes();
+  }
+
+  /** Closes and deletes the sorted edges. */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (edges != null) {
+        edges.close();
+        edges = null;
+      }
+    } finally {
+      try {
+        bySource.close();
+      } finally {
+        byDestination.close();
+      }
+    }
+  }
+
+  /**
+   * Finds where the row of every vertex starts in the edges sorted by source.
+   *
+   * @throws IOException if the sorted edges cannot be read.
+   */
+  private void indexRows() throws IOException {
+    rowStarts = new long[vertexCount + 1];
+    try (LongFileReader reader = new LongFileReader(edges, 0, bySource.count())) {
+      while (reader.hasNext()) {
+        rowStarts[(int) (reader.next() >>> 32) + 1]++;
+      }
+    }
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      rowStarts[vertex + 1] += rowStarts[vertex];
+    }
+  }
+
+  /**
+   * Reads the targets of the row of a vertex.
+   *
+   * @param vertex the id of the vertex.
+   * @param into the array to read the targets into, which must be long enough for the row.
+   * @throws IOException if the sorted edges cannot be read.
+   */
+  private void readRow(int vertex, int[] into) throws IOException {
+    long length = rowStarts[vertex + 1] - rowStarts[vertex];
+    try (LongFileReader row = new LongFileReader(edges, rowStarts[vertex], length)) {
+      for (int i = 0; i < length; i++) {
+        into[i] = (int) row.next();
+      }
+    }
+  }
+
+  /**
+   * Adds the path A to B to C to the batch, checking the batch when it is full.
+   *
+   * @param source the id of A.
+   * @param middle the id of B.
+   * @param destination the id of C.
+   * @throws IOException if the sorted edges cannot be read.
+   */
+  private void addPath(int source, int middle, int destination) throws IOException {
+    // A path ending in a self loop B to B is the edge A to B itself
+    if (destination == middle) {
+      return;
+    }
+    pathCount++;
+    paths[pathsInBatch++] = LongHashSet.pack(source, destination);
+    if (pathsInBatch == paths.length) {
+      checkPaths();
+    }
+  }
+
+  /**
+   * Checks that every path in the batch is an edge, by sorting the batch and walking the row of
+   * each source alongside its paths.
+   *
+   * @throws IOException if the sorted edges cannot be read.
+   */
+  private void checkPaths() throws IOException {
+    Arrays.sort(paths, 0, pathsInBatch);
+
+    int i = 0;
+    while (i < pathsInBatch && transitive) {
+      int source = (int) (paths[i] >>> 32);
+      long rowLength = rowStarts[source + 1] - rowStarts[source];
+      try (LongFileReader row = new LongFileReader(edges, rowStarts[source], rowLength)) {
+        // The paths from A and the row of A are both in ascending order of C
+        while (i < pathsInBatch && (int) (paths[i] >>> 32) == source && transitive) {
+          int destination = (int) paths[i];
+          while (row.hasNext() && (int) row.peek() < destination) {
+            row.next();
+          }
+          transitive = row.hasNext() && (int) row.peek() == destination;
+          i++;
+        }
+      }
+    }
+    pathsInBatch = 0;
+  }
+}
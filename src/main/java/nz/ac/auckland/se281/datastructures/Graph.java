@@ -1,11 +1,16 @@
 package nz.ac.auckland.se281.datastructures;
 
+import java.io.Closeable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 /**
  * A graph that is composed of a set of verticies and edges.
@@ -14,10 +19,49 @@ import java.util.Set;
  *
  * @param <T> The type of each vertex, that have a total ordering.
  */
-public class Graph<T extends Comparable<T>> {
-  private Set<T> verticies;
-  private Set<Edge<T>> edges;
-  private Map<T, LinkedList<T>> adjacencyMap;
+public class Graph<T extends Comparable<T>> implements Closeable {
+  // Relations where the edges are at least 1/64 of all possible pairs are dense enough that a bit
+  // matrix is both smaller than the edge index and faster to check
+  private static final int BIT_MATRIX_DENSITY = 64;
+  private static final long BIT_MATRIX_MAX_BYTES = 1L << 30;
+
+  // Relations with at least this many edges are checked in parallel by default, with each worker
+  // taking ranges of rows that hold at least the grain of edges
+  public static final int DEFAULT_PARALLEL_EDGE_THRESHOLD = 1 << 20;
+  private static final int PARALLEL_GRAIN_EDGES = 1 << 14;
+
+  // The targets of a closure are held twice while it is built, so its edges may use at most a
+  // quarter of the largest heap
+  private static final long CLOSURE_HEAP_FRACTION = 4;
+
+  // The bits of the relation properties that the property checks have found to be violated, which
+  // are also the positions of their counterexamples in the order 1, 2, 4, 8
+  private static final int NOT_REFLEXIVE = 1;
+  private static final int NOT_SYMMETRIC = 2;
+  private static final int NOT_ANTI_SYMMETRIC = 4;
+  private static final int NOT_TRANSITIVE = 8;
+  private static final int ALL_VIOLATED = 15;
+
+  // The recursive searches may go this deep by default, and each level reserves this much stack
+  // up to a bounded reservation for the worker thread
+  public static final int DEFAULT_RECURSION_DEPTH_LIMIT = 100_000;
+  private static final int STACK_FRAME_BYTES = 512;
+  private static final long MAX_STACK_BYTES = 256L << 20;
+
+  private VertexDictionary<T> dictionary;
+  private Adjacency adjacency;
+  private int[] inDegrees;
+  private LongHashSet edgeIndex;
+  private BitMatrix bitMatrix;
+  private RelationProperties relationProperties;
+  private EquivalenceClasses equivalenceClasses;
+  private int recursionDepthLimit = DEFAULT_RECURSION_DEPTH_LIMIT;
+  private int parallelEdgeThreshold = DEFAULT_PARALLEL_EDGE_THRESHOLD;
+
+  // The bits of the properties that have been analysed so far, and the counterexample to each of
+  // them in the order 1, 2, 4, 8, which is null if the property holds or has not been analysed
+  private int checkedProperties;
+  private final int[][] propertyWitnesses = new int[4][];
 
   /**
    * A graph that is composed of a set of verticies and edges.
@@ -26,41 +70,149 @@ public class Graph<T extends Comparable<T>> {
    * @param edges the set of edges in the graph.
    */
   public Graph(Set<T> verticies, Set<Edge<T>> edges) {
-    this.verticies = verticies;
-    this.edges = edges;
+    // Intern the verticies to dense ids in ascending numerical order, so ordering by id is the
+    // same as ordering numerically
+    dictionary = new VertexDictionary<T>(verticies);
+
+    // Intern the source and destination of every edge once
+    int[] edgeSources = new int[edges.size()];
+    int[] edgeDestinations = new int[edges.size()];
+    int index = 0;
+    for (Edge<T> edge : edges) {
+      edgeSources[index] = dictionary.idOf(edge.getSource());
+      edgeDestinations[index] = dictionary.idOf(edge.getDestination());
+      index++;
+    }
 
-    // Initialize the adjacency map
-    adjacencyMap = new HashMap<T, LinkedList<T>>();
+    // Group the edges by source, sort each row once and remove duplicate edges
+    adjacency = CsrAdjacency.fromEdges(dictionary.size(), edgeSources, edgeDestinations, index);
+    countInDegrees();
+  }
 
-    // Initialize the adjacency map with empty sets for each vertex
-    for (T vertex : verticies) {
-      adjacencyMap.put(vertex, new LinkedList<T>());
+  /**
+   * A graph built directly from interned verticies and their adjacency, as produced by a {@link
+   * GraphBuilder}.
+   *
+   * @param dictionary the verticies of the graph, interned in ascending numerical order.
+   * @param adjacency the edges of the graph between the ids of the dictionary.
+   */
+  Graph(VertexDictionary<T> dictionary, Adjacency adjacency) {
+    this.dictionary = dictionary;
+    this.adjacency = adjacency;
+    countInDegrees();
+  }
+
+  /**
+   * A graph restored from a snapshot, with its in degrees and any relation properties that were
+   * already known when it was saved.
+   *
+   * @param dictionary the verticies of the graph, interned in ascending numerical order.
+   * @param adjacency the edges of the graph between the ids of the dictionary.
+   * @param inDegrees the in degree of every vertex, or null to count them again.
+   * @param relationProperties the properties of the relation, or null if they are not known.
+   */
+  Graph(
+      VertexDictionary<T> dictionary,
+      Adjacency adjacency,
+      int[] inDegrees,
+      RelationProperties relationProperties) {
+    this.dictionary = dictionary;
+    this.adjacency = adjacency;
+    this.relationProperties = relationProperties;
+    if (inDegrees == null) {
+      countInDegrees();
+    } else {
+      this.inDegrees = inDegrees;
     }
+  }
 
-    // Add edges to the adjacency map
-    for (Edge<T> edge : edges) {
-      T source = edge.getSource();
-      T destination = edge.getDestination();
-
-      // Add the destination to the adjacency map of the source
-      LinkedList<T> destinations = adjacencyMap.get(source);
-
-      // If destinations is empty or the destination is greater than the last element in the list,
-      // add it to destinations
-      if (destinations.isEmpty()
-          || compareNumerically(destination, destinations.get(destinations.size() - 1)) > 0) {
-        destinations.add(destination);
-        // Otherwise, find the correct index to insert the destination so destinations is ordered
-        // from smallest to largest
-      } else {
-        int index = 0;
-        while (index < destinations.size()
-            && compareNumerically(destination, destinations.get(index)) > 0) {
-          index++;
-        }
-        destinations.insert(index, destination);
+  VertexDictionary<T> getDictionary() {
+    return dictionary;
+  }
+
+  Adjacency getAdjacency() {
+    return adjacency;
+  }
+
+  int[] getInDegrees() {
+    return inDegrees;
+  }
+
+  /**
+   * Gets the properties of the relation if they have already been analysed, without analysing
+   * them.
+   *
+   * @return the properties of the relation, or null if they have not been analysed yet.
+   */
+  RelationProperties getCachedRelationProperties() {
+    if (relationProperties == null && checkedProperties == ALL_VIOLATED) {
+      return getRelationProperties();
+    }
+    return relationProperties;
+  }
+
+  /** Counts the in degree of every vertex from the targets of the adjacency. */
+  private void countInDegrees() {
+    inDegrees = new int[dictionary.size()];
+    for (int i = 0; i < adjacency.edgeCount(); i++) {
+      inDegrees[adjacency.target(i)]++;
+    }
+  }
+
+  /**
+   * Gets the number of bytes of memory outside of the heap used to store the edges of the graph.
+   *
+   * @return the number of off-heap bytes, or 0 if the edges are on the heap or memory mapped.
+   */
+  public long offHeapBytes() {
+    return adjacency.offHeapBytes();
+  }
+
+  /**
+   * Releases any memory outside of the heap used to store the edges of the graph. The graph must
+   * not be used afterwards.
+   */
+  @Override
+  public void close() {
+    adjacency.close();
+  }
+
+  /**
+   * Gets every vertex of the graph in ascending numerical order.
+   *
+   * @return the verticies of the graph.
+   */
+  public List<T> getVerticies() {
+    List<T> verticies = new ArrayList<T>(dictionary.size());
+    for (int vertex = 0; vertex < dictionary.size(); vertex++) {
+      verticies.add(dictionary.vertexOf(vertex));
+    }
+    return verticies;
+  }
+
+  /**
+   * Gets every edge of the graph, ordered numerically by source and then by destination.
+   *
+   * @return the edges of the graph.
+   */
+  public List<Edge<T>> getEdges() {
+    List<Edge<T>> edges = new ArrayList<Edge<T>>(adjacency.edgeCount());
+    for (int source = 0; source < dictionary.size(); source++) {
+      for (int i = adjacency.rowStart(source); i < adjacency.rowEnd(source); i++) {
+        T destination = dictionary.vertexOf(adjacency.target(i));
+        edges.add(new Edge<T>(dictionary.vertexOf(source), destination));
       }
     }
+    return edges;
+  }
+
+  /**
+   * Gets the number of distinct edges of the graph.
+   *
+   * @return the number of edges.
+   */
+  public int edgeCount() {
+    return adjacency.edgeCount();
   }
 
   /**
@@ -70,199 +222,181 @@ public class Graph<T extends Comparable<T>> {
    */
   public Set<T> getRoots() {
 
-    // Initialize the roots set and the unordered roots array list
+    // Add the roots in ascending id order, which is the same as ascending numerical order
     Set<T> roots = new LinkedHashSet<T>();
-    List<T> unorderedRoots = new ArrayList<T>();
-
-    // Loop through all the vertices and the variable count is the in degree of each vertex
-    for (T vertex : verticies) {
-      int count = 0;
-      for (Edge<T> edge : edges) {
-        // If the destination of an edge is equal to the vertex, the vertex has an in degree greater
-        // than zero, so it is not a root
-        if (edge.getDestination().equals(vertex)) {
-          count++;
-          break;
-        }
-      }
-      // If the in degree of a vertex is 0 (count is 0), add it to the roots array list
-      if (count == 0) {
-        unorderedRoots.add(vertex);
-      }
+    for (int root : rootIds()) {
+      roots.add(dictionary.vertexOf(root));
     }
 
-    // If the graph is an equivalence relation, find the minimum value of each different equivalence
-    // class which will be a root of the graph
-    if (isEquivalence()) {
-      for (T vertex : verticies) {
-        for (T vertex2 : verticies) {
-          if (!getEquivalenceClass(vertex).contains(vertex2)) {
-            unorderedRoots.add(adjacencyMap.get(vertex).get(0));
-            break;
-          }
-        }
-      }
-    }
+    return roots;
+  }
 
-    // Sort the unordered roots array list
-    sort(unorderedRoots);
+  /**
+   * Gets the number of edges that end at a vertex.
+   *
+   * @param vertex the vertex to find the in degree of.
+   * @return the in degree of the vertex.
+   */
+  public int inDegree(T vertex) {
+    return inDegrees[requireId(vertex)];
+  }
 
-    // Add the sorted roots to the roots set
-    for (T root : unorderedRoots) {
-      roots.add(root);
+  /**
+   * Gets the number of edges that start at a vertex.
+   *
+   * @param vertex the vertex to find the out degree of.
+   * @return the out degree of the vertex.
+   */
+  public int outDegree(T vertex) {
+    return adjacency.outDegree(requireId(vertex));
+  }
+
+  /**
+   * Counts how many verticies have each out degree.
+   *
+   * @return an array where the element at index d is the number of verticies with out degree d.
+   */
+  public int[] degreeHistogram() {
+    // Find the largest out degree so the histogram has a slot for every degree up to it
+    int maxDegree = 0;
+    for (int vertex = 0; vertex < dictionary.size(); vertex++) {
+      maxDegree = Math.max(maxDegree, adjacency.outDegree(vertex));
     }
 
-    return roots;
+    int[] histogram = new int[maxDegree + 1];
+    for (int vertex = 0; vertex < dictionary.size(); vertex++) {
+      histogram[adjacency.outDegree(vertex)]++;
+    }
+    return histogram;
   }
 
   /**
-   * Finds whether the graph is reflexive.
+   * Finds whether there is an edge from one vertex to another.
    *
-   * @return true if the graph is reflexive, false otherwise.
+   * @param source the source vertex of the edge.
+   * @param destination the destination vertex of the edge.
+   * @return true if the edge is in the graph, false otherwise.
    */
-  public boolean isReflexive() {
+  public boolean hasEdge(T source, T destination) {
+    int sourceId = dictionary.idOf(source);
+    int destinationId = dictionary.idOf(destination);
 
-    // Initialize the vertexReflexive boolean variable
-    boolean vertexReflexive;
-
-    // Loop through all vertices and edges in the graph
-    for (T vertex : verticies) {
-      vertexReflexive = false;
-      for (Edge<T> edge : edges) {
-        // If the vertex has a self loop, it is reflexive so set vertexReflexive to true and break
-        // the loop
-        if (edge.getSource().equals(vertex) && edge.getDestination().equals(vertex)) {
-          vertexReflexive = true;
-          break;
-        }
-      }
-      // If a vertex does not have a self loop, the graph is not reflexive so return false
-      if (!vertexReflexive) {
-        return false;
-      }
+    // If either vertex is not in the graph, neither is the edge
+    if (sourceId == -1 || destinationId == -1) {
+      return false;
     }
-    // If all vertices have a self loop, the graph is reflexive so return true
-    return true;
+    return hasEdge(sourceId, destinationId);
   }
 
   /**
-   * Finds whether the graph is symmetric.
+   * Gets the properties of the relation described by the edges of the graph. Every property that
+   * has not been analysed yet is analysed in a single pass, and the result is cached since the
+   * graph cannot change after it is constructed.
    *
-   * @return true if the graph is symmetric, false otherwise.
+   * @return the relation properties of the graph.
    */
-  public boolean isSymmetric() {
-
-    // If there are no edges in the graph, it is symmetric so return true
-    if (edges.size() == 0) {
-      return true;
+  public RelationProperties getRelationProperties() {
+    if (relationProperties == null) {
+      analyseRelation(ALL_VIOLATED, false);
+      relationProperties =
+          new RelationProperties(
+              propertyWitnesses[0],
+              propertyWitnesses[1],
+              propertyWitnesses[2],
+              propertyWitnesses[3]);
     }
+    return relationProperties;
+  }
 
-    boolean edgeSymmetric;
+  /**
+   * Finds whether the graph is reflexive. Only reflexivity is analysed, so the pass stops as soon
+   * as a vertex without a self loop is found.
+   *
+   * @return true if the graph is reflexive, false otherwise.
+   */
+  public boolean isReflexive() {
+    return !isViolated(NOT_REFLEXIVE);
+  }
 
-    // Loop through all edges in the graph
-    for (Edge<T> edge1 : edges) {
-      edgeSymmetric = false;
-      for (Edge<T> edge2 : edges) {
-        // If there is an edge from vertex A to vertex B and an edge from vertex B to vertex A, then
-        // the symmetry is satisfied for the edge
-        if (edge1.getSource().equals(edge2.getDestination())
-            && edge1.getDestination().equals(edge2.getSource())) {
-          edgeSymmetric = true;
-          break;
-        }
-      }
-      // If an edge does not satisfy the symmetry property, the graph is not symmetric so return
-      if (!edgeSymmetric) {
-        return false;
-      }
-    }
-    // If all edges satisfy the symmetry property, the graph is symmetric so return true
-    return true;
+  /**
+   * Finds whether the graph is symmetric. Only symmetry is analysed, so the pass stops as soon as
+   * an edge without a reverse edge is found.
+   *
+   * @return true if the graph is symmetric, false otherwise.
+   */
+  public boolean isSymmetric() {
+    return !isViolated(NOT_SYMMETRIC);
   }
 
   /**
-   * Finds whether the graph is transitive.
+   * Finds whether the graph is transitive. Only transitivity is analysed, so the pass stops as
+   * soon as a path of two edges without a shortcut is found.
    *
    * @return true if the graph is transitive, false otherwise.
    */
   public boolean isTransitive() {
-    // If there are no edges in the graph, it is transitive so return true
-    if (edges.size() == 0) {
-      return true;
-    }
-
-    boolean edge3Exists;
-
-    // If there is an edge from vertex A to vertex B and an edge from vertex B to vertex C, then
-    // there should be an edge from vertex A to vertex C for the transitivity property to be
-    // satisfied
-    for (Edge<T> edge1 : edges) {
-      for (Edge<T> edge2 : edges) {
-        if (edge1.getDestination().equals(edge2.getSource())) {
-          edge3Exists = false;
-
-          // If there is an edge from vertex A to vertex C, set edge3Exists to true and break the
-          // loop
-          for (Edge<T> edge3 : edges) {
-            if (edge1.getSource().equals(edge3.getSource())
-                && edge2.getDestination().equals(edge3.getDestination())) {
-              edge3Exists = true;
-              break;
-            }
-          }
-          // If there is no edge from vertex A to vertex C, the graph is not transitive so return
-          // false
-          if (!edge3Exists) {
-            return false;
-          }
-        }
-      }
-    }
-    // If all edges satisfy the transitivity property, the graph is transitive so return true
-    return true;
+    return !isViolated(NOT_TRANSITIVE);
   }
 
   /**
-   * Finds whether the graph is anti symmetric.
+   * Finds whether the graph is anti symmetric. Only anti symmetry is analysed, so the pass stops as
+   * soon as two different verticies with edges both ways are found.
    *
    * @return true if the graph is anti symmetric, false otherwise.
    */
   public boolean isAntiSymmetric() {
-    // If there are no edges in the graph, it is anti symmetric so return true
-    if (edges.size() == 0) {
-      return true;
-    }
-
-    // For all edges, if there is an edge from vertex A to vertex B and an edge from vertex B to
-    // vertex A, and A=B the antisymmetric property is satisfied
-    for (Edge<T> edge1 : edges) {
-      for (Edge<T> edge2 : edges) {
-        if (edge1.getSource().equals(edge2.getDestination())
-            && edge1.getDestination().equals(edge2.getSource())) {
-          // If A != B, the antisymmetric property is not satisfied so return false
-          if (!edge1.getSource().equals(edge2.getSource())) {
-            return false;
-          }
-        }
-      }
-    }
-    // If all edges satisfy the antisymmetric property, the graph is antisymmetric so return true
-    return true;
+    return !isViolated(NOT_ANTI_SYMMETRIC);
   }
 
   /**
-   * Finds whether the graph is an equivalence relation.
+   * Finds whether the graph is an equivalence relation. Reflexivity, symmetry and transitivity are
+   * analysed together, and the pass stops as soon as any of them is violated.
    *
    * @return true if the graph is an equivalence relation, false otherwise.
    */
   public boolean isEquivalence() {
-    // If the graph is reflexive, symmetric and transitive, it is an equivalence relation so return
-    // true
-    if (isReflexive() && isSymmetric() && isTransitive()) {
-      return true;
-    } else {
-      return false;
+    if (relationProperties != null) {
+      return relationProperties.isEquivalence();
     }
+    return analyseRelation(NOT_REFLEXIVE | NOT_SYMMETRIC | NOT_TRANSITIVE, true) == 0;
+  }
+
+  /**
+   * Finds a vertex without a self loop, which shows the graph is not reflexive.
+   *
+   * @return a list holding the vertex, or an empty list if the graph is reflexive.
+   */
+  public List<T> getReflexiveWitness() {
+    return verticiesOf(witnessOf(NOT_REFLEXIVE));
+  }
+
+  /**
+   * Finds an edge A to B without the edge B to A, which shows the graph is not symmetric.
+   *
+   * @return the list [A, B], or an empty list if the graph is symmetric.
+   */
+  public List<T> getSymmetricWitness() {
+    return verticiesOf(witnessOf(NOT_SYMMETRIC));
+  }
+
+  /**
+   * Finds two different verticies A and B with the edges A to B and B to A, which shows the graph
+   * is not anti symmetric.
+   *
+   * @return the list [A, B], or an empty list if the graph is anti symmetric.
+   */
+  public List<T> getAntiSymmetricWitness() {
+    return verticiesOf(witnessOf(NOT_ANTI_SYMMETRIC));
+  }
+
+  /**
+   * Finds the edges A to B and B to C without the edge A to C, which shows the graph is not
+   * transitive.
+   *
+   * @return the list [A, B, C], or an empty list if the graph is transitive.
+   */
+  public List<T> getTransitiveWitness() {
+    return verticiesOf(witnessOf(NOT_TRANSITIVE));
   }
 
   /**
@@ -280,13 +414,55 @@ public class Graph<T extends Comparable<T>> {
       return equivalenceClass;
     }
 
-    // Add the destination values from the adjacency map to the equivalence class
-    for (int i = 0; i < adjacencyMap.get(vertex).size(); i++) {
-      equivalenceClass.add(adjacencyMap.get(vertex).get(i));
+    // If the vertex is not in the graph, return the empty set
+    int id = dictionary.idOf(vertex);
+    if (id == -1) {
+      return equivalenceClass;
+    }
+
+    // Add the members of the class of the vertex, which are stored in ascending order
+    EquivalenceClasses classes = getEquivalenceClasses();
+    int c = classes.classOf(id);
+    for (int i = classes.memberStart(c); i < classes.memberEnd(c); i++) {
+      equivalenceClass.add(dictionary.vertexOf(classes.member(i)));
     }
     return equivalenceClass;
   }
 
+  /**
+   * Computes the transitive closure of the graph, which has an edge from A to B whenever there is
+   * a path of one or more edges from A to B.
+   *
+   * @return a new graph with the same verticies and the edges of the closure.
+   * @throws IllegalStateException if the closure has too many edges to fit in memory.
+   */
+  public Graph<T> transitiveClosure() {
+    Adjacency closure = TransitiveClosure.compute(adjacency, false, closureEdgeLimit());
+    return new Graph<T>(dictionary, closure);
+  }
+
+  /**
+   * Computes the reflexive transitive closure of the graph, which is the transitive closure with
+   * an edge from every vertex to itself.
+   *
+   * @return a new graph with the same verticies and the edges of the closure.
+   * @throws IllegalStateException if the closure has too many edges to fit in memory.
+   */
+  public Graph<T> reflexiveTransitiveClosure() {
+    Adjacency closure = TransitiveClosure.compute(adjacency, true, closureEdgeLimit());
+    return new Graph<T>(dictionary, closure);
+  }
+
+  /**
+   * Gets the largest number of edges a closure may have, from the largest heap the JVM may use.
+   *
+   * @return the largest number of edges of a closure.
+   */
+  private static long closureEdgeLimit() {
+    long heapLimit = Runtime.getRuntime().maxMemory() / CLOSURE_HEAP_FRACTION / Integer.BYTES;
+    return Math.min(heapLimit, Integer.MAX_VALUE - 8);
+  }
+
   /**
    * Iteratively finds the visited vertices for the breadth first search algorithm and returns the
    * visited list.
@@ -294,21 +470,49 @@ public class Graph<T extends Comparable<T>> {
    * @return the visited vertices for the breadth first search algorithm.
    */
   public List<T> iterativeBreadthFirstSearch() {
-    Queue<T> queue = new Queue<>();
+    IntQueue queue = new IntQueue();
     List<T> visited = new ArrayList<>();
+    BitSet discovered = new BitSet(dictionary.size());
 
     // Add all the roots to the queue after all successors of the root before have been visited
-    for (T root : getRoots()) {
+    for (int root : rootIds()) {
+      discovered.set(root);
       queue.enqueue(root);
       // Loop through all the vertices in the graph while the queue is not empty
       while (!queue.isEmpty()) {
         // Run the bfs algorithm which will will modify the queue and visited list
-        bfsAlgorithm(visited, queue);
+        bfsAlgorithm(visited, discovered, queue);
       }
     }
     return visited;
   }
 
+  /**
+   * Finds the visited vertices for the breadth first search algorithm by expanding each level of
+   * the search in parallel, visiting the vertices in the same order as the iterative search.
+   *
+   * @param pool the pool that expands each level of the search.
+   * @return the visited vertices for the breadth first search algorithm.
+   */
+  public List<T> parallelBreadthFirstSearch(ForkJoinPool pool) {
+    int[] order = new ParallelBreadthFirstSearch(adjacency, pool).search(rootIds());
+    List<T> visited = new ArrayList<>(order.length);
+    for (int vertex : order) {
+      visited.add(dictionary.vertexOf(vertex));
+    }
+    return visited;
+  }
+
+  /**
+   * Finds the visited vertices for the breadth first search algorithm by expanding each level of
+   * the search across the common fork join pool.
+   *
+   * @return the visited vertices for the breadth first search algorithm.
+   */
+  public List<T> parallelBreadthFirstSearch() {
+    return parallelBreadthFirstSearch(ForkJoinPool.commonPool());
+  }
+
   /**
    * Iteratively finds the visited vertices for the depth first search algorithm and returns the
    * visited list.
@@ -316,25 +520,21 @@ public class Graph<T extends Comparable<T>> {
    * @return the visited vertices for the depth first search algorithm.
    */
   public List<T> iterativeDepthFirstSearch() {
-    Stack<T> stack = new Stack<>();
+    IntStack stack = new IntStack();
     List<T> visited = new ArrayList<>();
-    List<T> toPush = new ArrayList<>();
-
-    // Add all the roots to the toPush arraylist
-    for (T root : getRoots()) {
-      toPush.add(root);
-    }
+    BitSet done = new BitSet(dictionary.size());
+    int[] roots = rootIds();
 
     // Push all the roots to the stack in descending numerical order
-    for (int i = toPush.size() - 1; i >= 0; i--) {
-      stack.push(toPush.get(i));
+    for (int i = roots.length - 1; i >= 0; i--) {
+      stack.push(roots[i]);
     }
 
     // Loop through all the vertices in the graph while the stack is not empty
     while (!stack.isEmpty()) {
 
       // Run the dfs algorithm which will modify the stack and visited list
-      dfsAlgorithm(visited, stack);
+      dfsAlgorithm(visited, done, stack);
     }
     return visited;
   }
@@ -346,16 +546,23 @@ public class Graph<T extends Comparable<T>> {
    * @return the visited vertices for the breadth first search algorithm.
    */
   public List<T> recursiveBreadthFirstSearch() {
-    List<T> visited = new ArrayList<>();
-    Queue<T> queue = new Queue<>();
-
-    // Add all the roots to the queue after all successors of the root before have been visited
-    for (T root : getRoots()) {
-      queue.enqueue(root);
-      // Run the recursive bfs algorithm on the queue which will modify the queue and visited list
-      recursiveBfs(visited, queue);
-    }
-    return visited;
+    return runRecursiveSearch(
+        () -> {
+          List<T> visited = new ArrayList<>();
+          IntQueue queue = new IntQueue();
+          BitSet discovered = new BitSet(dictionary.size());
+
+          // Add all the roots to the queue after all successors of the root before have been
+          // visited
+          for (int root : rootIds()) {
+            discovered.set(root);
+            queue.enqueue(root);
+            // Run the recursive bfs algorithm on the queue which will modify the queue and visited
+            // list
+            recursiveBfs(visited, discovered, queue, 1);
+          }
+          return visited;
+        });
   }
 
   /**
@@ -365,172 +572,658 @@ public class Graph<T extends Comparable<T>> {
    * @return the visited vertices for the depth first search algorithm.
    */
   public List<T> recursiveDepthFirstSearch() {
-    List<T> visited = new ArrayList<>();
-    Stack<T> stack = new Stack<>();
-    List<T> toPush = new ArrayList<>();
+    return runRecursiveSearch(
+        () -> {
+          List<T> visited = new ArrayList<>();
+          BitSet done = new BitSet(dictionary.size());
+
+          // Call the recursive dfs method on each root in ascending numerical order which will
+          // modify the visited list
+          for (int root : rootIds()) {
+            if (!done.get(root)) {
+              recursiveDfs(visited, done, root, 1);
+            }
+          }
+          return visited;
+        });
+  }
 
-    // Add all the roots to the toPush arraylist
-    for (T root : getRoots()) {
-      toPush.add(root);
+  /**
+   * Sets the deepest recursion the recursive searches may reach before they stop with an error.
+   * The searches run on a worker thread whose stack is sized for this depth.
+   *
+   * @param recursionDepthLimit the maximum recursion depth.
+   */
+  public void setRecursionDepthLimit(int recursionDepthLimit) {
+    if (recursionDepthLimit < 1) {
+      throw new IllegalArgumentException("the recursion depth limit must be positive");
     }
+    this.recursionDepthLimit = recursionDepthLimit;
+  }
 
-    // Push all the roots to the stack in descending numerical order
-    for (int i = toPush.size() - 1; i >= 0; i--) {
-      stack.push(toPush.get(i));
-    }
+  public int getRecursionDepthLimit() {
+    return recursionDepthLimit;
+  }
 
-    // Call the recursive dfs method which will modify the stack and visited list
-    recursiveDfs(visited, stack);
+  /**
+   * Sets the number of edges from which the relation properties are checked in parallel. It only
+   * affects properties that have not been checked yet.
+   *
+   * @param parallelEdgeThreshold the smallest number of edges to check in parallel.
+   */
+  public void setParallelEdgeThreshold(int parallelEdgeThreshold) {
+    if (parallelEdgeThreshold < 0) {
+      throw new IllegalArgumentException("the parallel edge threshold must not be negative");
+    }
+    this.parallelEdgeThreshold = parallelEdgeThreshold;
+  }
 
-    return visited;
+  public int getParallelEdgeThreshold() {
+    return parallelEdgeThreshold;
   }
 
   /**
    * Recursively modifies the visited vertices and queue for the breadth first search algorithm.
+   * Each call visits one whole level of the search, so the recursion is only as deep as the number
+   * of levels.
    *
    * @param visited the list of visited vertices.
-   * @param queue the queue of vertices to visit.
+   * @param discovered the ids of the vertices that have been added to the queue.
+   * @param queue the queue of vertex ids to visit, which holds exactly one level.
+   * @param depth the depth of this call.
    */
-  private void recursiveBfs(List<T> visited, Queue<T> queue) {
+  private void recursiveBfs(List<T> visited, BitSet discovered, IntQueue queue, int depth) {
     if (queue.isEmpty()) {
       return;
     }
+    checkDepth(depth);
 
-    // Run the bfs algorithm which will modify the queue and visited list
-    bfsAlgorithm(visited, queue);
+    // Run the bfs algorithm on every vertex of this level, which enqueues the next level
+    for (int remaining = queue.size(); remaining > 0; remaining--) {
+      bfsAlgorithm(visited, discovered, queue);
+    }
 
-    // Recursively call this method
-    recursiveBfs(visited, queue);
+    // Recursively call this method on the next level
+    recursiveBfs(visited, discovered, queue, depth + 1);
   }
 
   /**
-   * Recursively modifies the visited vertices and stack for the depth first search algorithm.
+   * Recursively visits a vertex and then each of its unvisited successors in ascending order for
+   * the depth first search algorithm. The recursion is only as deep as the longest search path.
    *
    * @param visited the list of visited vertices.
-   * @param stack the stack of vertices to visit.
+   * @param done the ids of the vertices that have been visited.
+   * @param vertex the id of the vertex to visit.
+   * @param depth the depth of this call.
    */
-  private void recursiveDfs(List<T> visited, Stack<T> stack) {
-    if (stack.isEmpty()) {
-      return;
+  private void recursiveDfs(List<T> visited, BitSet done, int vertex, int depth) {
+    checkDepth(depth);
+
+    // Add the vertex to the visited list
+    done.set(vertex);
+    visited.add(dictionary.vertexOf(vertex));
+
+    // Recursively call this method on each successor that has not been visited
+    for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+      if (!done.get(adjacency.target(i))) {
+        recursiveDfs(visited, done, adjacency.target(i), depth + 1);
+      }
     }
+  }
 
-    // Run the dfs algorithm which will modify the stack and visited list
-    dfsAlgorithm(visited, stack);
+  /**
+   * Stops a recursive search with an error if it goes deeper than the recursion depth limit.
+   *
+   * @param depth the depth of the current call.
+   */
+  private void checkDepth(int depth) {
+    if (depth > recursionDepthLimit) {
+      throw new IllegalStateException(
+          "the recursive search is deeper than the limit of " + recursionDepthLimit);
+    }
+  }
+
+  /**
+   * Runs a recursive search on a worker thread with a stack large enough for the recursion depth
+   * limit, up to a bounded size, and waits for its result. Anything thrown by the search is thrown
+   * again on the calling thread.
+   *
+   * @param search the recursive search to run.
+   * @return the visited vertices of the search.
+   */
+  private List<T> runRecursiveSearch(Supplier<List<T>> search) {
+    List<List<T>> result = new ArrayList<>();
+    List<Throwable> failure = new ArrayList<>();
+
+    Runnable task =
+        () -> {
+          try {
+            result.add(search.get());
+          } catch (StackOverflowError e) {
+            // The frames were larger than expected, so report it the same way as the limit
+            failure.add(
+                new IllegalStateException(
+                    "the recursive search ran out of stack before the limit of "
+                        + recursionDepthLimit));
+          } catch (Throwable e) {
+            failure.add(e);
+          }
+        };
+
+    long stackBytes = Math.min((long) recursionDepthLimit * STACK_FRAME_BYTES, MAX_STACK_BYTES);
+    Thread worker = new Thread(null, task, "recursive-search", stackBytes);
+    worker.start();
+
+    // Wait for the search to finish, even if this thread is interrupted
+    boolean interrupted = false;
+    while (worker.isAlive()) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
 
-    // Recursively call this method
-    recursiveDfs(visited, stack);
+    if (!failure.isEmpty()) {
+      Throwable cause = failure.get(0);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException("the recursive search failed", cause);
+    }
+    return result.get(0);
   }
 
   /**
-   * Sorts a list of elements into ascending numerical order.
+   * Finds whether there is an edge between two vertex ids using the edge index.
    *
-   * @param list the list to sort.
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   * @return true if the edge is in the graph, false otherwise.
    */
-  public void sort(List<T> list) {
+  private boolean hasEdge(int source, int destination) {
+    // Rows stored outside of the heap are binary searched rather than indexed on the heap
+    if (!adjacency.isOnHeap()) {
+      return adjacency.contains(source, destination);
+    }
 
-    // If the list is empty, return
-    if (list.size() == 0) {
-      return;
+    return getEdgeIndex().contains(LongHashSet.pack(source, destination));
+  }
+
+  /**
+   * Gets the index of every edge of the graph, which is built the first time it is needed.
+   *
+   * @return the edge index.
+   */
+  private LongHashSet getEdgeIndex() {
+    if (edgeIndex == null) {
+      // Pack every edge into a single long key so membership is one hash lookup
+      edgeIndex = new LongHashSet(adjacency.edgeCount());
+      for (int vertex = 0; vertex < dictionary.size(); vertex++) {
+        for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+          edgeIndex.add(LongHashSet.pack(vertex, adjacency.target(i)));
+        }
+      }
+    }
+    return edgeIndex;
+  }
+
+  /**
+   * Finds whether a relation property is violated, analysing only that property if it is not
+   * already known.
+   *
+   * @param property the bit of the property.
+   * @return true if the property is violated, false if it holds.
+   */
+  private boolean isViolated(int property) {
+    if (relationProperties != null) {
+      return !holds(relationProperties, property);
+    }
+    return analyseRelation(property, false) != 0;
+  }
+
+  /**
+   * Gets the counterexample to a relation property. Properties restored from a snapshot have no
+   * counterexamples, so a property that fails is analysed again to find one.
+   *
+   * @param property the bit of the property.
+   * @return the ids of the verticies of the counterexample, or null if the property holds.
+   */
+  private int[] witnessOf(int property) {
+    if (relationProperties != null && holds(relationProperties, property)) {
+      return null;
     }
+    analyseRelation(property, false);
+    return propertyWitnesses[Integer.numberOfTrailingZeros(property)];
+  }
 
-    // Loop through the list and set the least element to the current i element
-    for (int i = 0; i < list.size() - 1; i++) {
-      int least = i;
-      // Loop through all the elements after the current i element
-      for (int j = i + 1; j < list.size(); j++) {
-        // If the element at j is less than the element at least, set least to j
-        if (compareNumerically(list.get(j), list.get(least)) < 0) {
-          least = j;
+  /**
+   * Finds whether a relation property holds in a set of relation properties.
+   *
+   * @param properties the relation properties.
+   * @param property the bit of the property.
+   * @return true if the property holds, false otherwise.
+   */
+  private static boolean holds(RelationProperties properties, int property) {
+    if (property == NOT_REFLEXIVE) {
+      return properties.isReflexive();
+    } else if (property == NOT_SYMMETRIC) {
+      return properties.isSymmetric();
+    } else if (property == NOT_ANTI_SYMMETRIC) {
+      return properties.isAntiSymmetric();
+    }
+    return properties.isTransitive();
+  }
+
+  /**
+   * Gets the verticies of a list of ids.
+   *
+   * @param ids the ids of the verticies, or null for no verticies.
+   * @return the verticies in the same order as their ids.
+   */
+  private List<T> verticiesOf(int[] ids) {
+    List<T> verticies = new ArrayList<>();
+    if (ids != null) {
+      for (int id : ids) {
+        verticies.add(dictionary.vertexOf(id));
+      }
+    }
+    return verticies;
+  }
+
+  /**
+   * Finds the ids of the roots of the graph in ascending order.
+   *
+   * @return the ids of the roots of the graph.
+   */
+  private int[] rootIds() {
+    // Mark the ids of the roots so they can be collected in ascending order with one scan
+    boolean[] isRoot = new boolean[dictionary.size()];
+    int count = 0;
+
+    // A vertex with an in degree of 0 is a root
+    for (int vertex = 0; vertex < dictionary.size(); vertex++) {
+      if (inDegrees[vertex] == 0) {
+        isRoot[vertex] = true;
+        count++;
+      }
+    }
+
+    // If the graph is an equivalence relation, find the minimum value of each different equivalence
+    // class which will be a root of the graph, unless every vertex is in the same class
+    if (isEquivalence() && getEquivalenceClasses().classCount() > 1) {
+      EquivalenceClasses classes = getEquivalenceClasses();
+      for (int c = 0; c < classes.classCount(); c++) {
+        if (!isRoot[classes.minimum(c)]) {
+          isRoot[classes.minimum(c)] = true;
+          count++;
+        }
+      }
+    }
+
+    // Collect the marked ids in ascending order
+    int[] roots = new int[count];
+    int index = 0;
+    for (int vertex = 0; vertex < dictionary.size(); vertex++) {
+      if (isRoot[vertex]) {
+        roots[index++] = vertex;
+      }
+    }
+    return roots;
+  }
+
+  /**
+   * Gets the id of a vertex that must be in the graph.
+   *
+   * @param vertex the vertex to look up.
+   * @return the id of the vertex.
+   */
+  private int requireId(T vertex) {
+    int id = dictionary.idOf(vertex);
+    if (id == -1) {
+      throw new IllegalArgumentException("vertex " + vertex + " is not in the graph");
+    }
+    return id;
+  }
+
+  /**
+   * Gets the index of the equivalence classes of the graph, which is built the first time it is
+   * needed. The graph must be an equivalence relation.
+   *
+   * @return the equivalence classes of the graph.
+   */
+  private EquivalenceClasses getEquivalenceClasses() {
+    if (equivalenceClasses == null) {
+      equivalenceClasses = new EquivalenceClasses(adjacency);
+    }
+    return equivalenceClasses;
+  }
+
+  /**
+   * Analyses the requested relation properties that have not been analysed yet in one pass over
+   * the rows of the adjacency. Properties that were not requested are treated as already violated,
+   * so they are never checked, and each requested property stops being checked as soon as it is
+   * violated. The pass ends early once every requested property has been violated, or once any of
+   * them has been violated if only that is needed.
+   *
+   * <p>Relations with at least the parallel edge threshold of edges are split into ranges of rows
+   * that are checked by the workers of the common fork join pool. The workers share the set of
+   * violated properties, so a violation found by one worker stops the others checking it too.
+   *
+   * <p>The first counterexample found to each property is kept. When the rows are checked in
+   * parallel it is not necessarily the counterexample with the smallest ids.
+   *
+   * @param properties the bits of the properties to analyse.
+   * @param stopAtFirst whether the pass ends as soon as any of the properties is violated, which
+   *     leaves the other properties to be analysed later.
+   * @return the bits of the requested properties that are known to be violated.
+   */
+  private int analyseRelation(int properties, boolean stopAtFirst) {
+    int unchecked = properties & ~checkedProperties;
+    if (unchecked != 0 && !(stopAtFirst && violatedProperties(properties) != 0)) {
+      // If the relation is dense, look up edges and check transitivity with the bit matrix
+      BitMatrix matrix = useBitMatrix() ? getBitMatrix() : null;
+      Violations violated = new Violations(ALL_VIOLATED & ~unchecked, stopAtFirst);
+
+      if (adjacency.edgeCount() >= parallelEdgeThreshold) {
+        // Build the edge index before the workers start, as it is only safe to share once built
+        if (matrix == null && adjacency.isOnHeap()) {
+          getEdgeIndex();
+        }
+        ForkJoinPool.commonPool().invoke(new AnalyseRows(0, dictionary.size(), matrix, violated));
+      } else {
+        analyseRows(0, dictionary.size(), matrix, violated);
+      }
+
+      // A pass that stopped at the first violation has only decided the violated properties
+      int found = violated.get() & unchecked;
+      for (int property = 1; property < ALL_VIOLATED; property <<= 1) {
+        if ((unchecked & property) != 0) {
+          propertyWitnesses[Integer.numberOfTrailingZeros(property)] = violated.witness(property);
+        }
+      }
+      checkedProperties |= stopAtFirst && found != 0 ? found : unchecked;
+    }
+    return violatedProperties(properties);
+  }
+
+  /**
+   * Finds which of the analysed properties are known to be violated.
+   *
+   * @param properties the bits of the properties.
+   * @return the bits of the properties that have been analysed and have a counterexample.
+   */
+  private int violatedProperties(int properties) {
+    int violated = 0;
+    for (int property = 1; property < ALL_VIOLATED; property <<= 1) {
+      if ((properties & checkedProperties & property) != 0
+          && propertyWitnesses[Integer.numberOfTrailingZeros(property)] != null) {
+        violated |= property;
+      }
+    }
+    return violated;
+  }
+
+  /**
+   * Checks the relation properties over a range of rows, recording each property that is violated
+   * with its counterexample. The violated properties are read again before every row, so properties
+   * violated by other workers are skipped.
+   *
+   * @param from the id of the first row to check.
+   * @param to the id just past the last row to check.
+   * @param matrix the adjacency bit matrix, or null if edges are looked up in the edge index.
+   * @param violated the bits of the properties that have been violated so far.
+   */
+  private void analyseRows(int from, int to, BitMatrix matrix, Violations violated) {
+    for (int a = from; a < to; a++) {
+      // If every property being checked has been violated, there is nothing left to check
+      if (violated.isDone()) {
+        return;
+      }
+      int found = violated.get();
+      boolean reflexive = (found & NOT_REFLEXIVE) == 0;
+      boolean symmetric = (found & NOT_SYMMETRIC) == 0;
+      boolean antiSymmetric = (found & NOT_ANTI_SYMMETRIC) == 0;
+      boolean transitive = (found & NOT_TRANSITIVE) == 0;
+
+      // If there is no edge from A to itself, the graph is not reflexive
+      if (reflexive && !(matrix != null ? matrix.get(a, a) : adjacency.contains(a, a))) {
+        reflexive = false;
+        violated.record(NOT_REFLEXIVE, a);
+      }
+
+      for (int i = adjacency.rowStart(a); i < adjacency.rowEnd(a); i++) {
+        int b = adjacency.target(i);
+
+        // If there is an edge from A to B, the reverse edge must exist for symmetry and must not
+        // exist for anti symmetry unless A=B
+        if (symmetric || antiSymmetric) {
+          boolean reverse = matrix != null ? matrix.get(b, a) : hasEdge(b, a);
+          if (!reverse && symmetric) {
+            symmetric = false;
+            violated.record(NOT_SYMMETRIC, a, b);
+          } else if (reverse && a != b && antiSymmetric) {
+            antiSymmetric = false;
+            violated.record(NOT_ANTI_SYMMETRIC, a, b);
+          }
+        }
+
+        // If there is an edge from A to B and an edge from B to C, then there should be an edge
+        // from A to C for the transitivity property to be satisfied
+        if (transitive && adjacency.outDegree(b) > 0) {
+          // Every successor of B must be a successor of A. With the bit matrix this is checked 64
+          // verticies at a time and only over the words between the smallest and largest
+          // successor of B, and the missing successor is only searched for if the check fails
+          if (matrix == null
+              || !matrix.isSubset(
+                  b,
+                  a,
+                  adjacency.target(adjacency.rowStart(b)),
+                  adjacency.target(adjacency.rowEnd(b) - 1))) {
+            for (int j = adjacency.rowStart(b); j < adjacency.rowEnd(b) && transitive; j++) {
+              int c = adjacency.target(j);
+              if (!(matrix != null ? matrix.get(a, c) : hasEdge(a, c))) {
+                transitive = false;
+                violated.record(NOT_TRANSITIVE, a, b, c);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Checks the relation properties over a range of rows, splitting large ranges in half. */
+  private class AnalyseRows extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final BitMatrix matrix;
+    private final Violations violated;
+
+    /**
+     * Checks the relation properties over a range of rows.
+     *
+     * @param from the id of the first row to check.
+     * @param to the id just past the last row to check.
+     * @param matrix the adjacency bit matrix, or null if edges are looked up in the edge index.
+     * @param violated the bits of the properties that have been violated so far.
+     */
+    private AnalyseRows(int from, int to, BitMatrix matrix, Violations violated) {
+      this.from = from;
+      this.to = to;
+      this.matrix = matrix;
+      this.violated = violated;
+    }
+
+    @Override
+    protected void compute() {
+      // Ranges that are already decided or hold few edges are checked by this worker
+      if (violated.isDone()
+          || to - from < 2
+          || adjacency.rowEnd(to - 1) - adjacency.rowStart(from) <= PARALLEL_GRAIN_EDGES) {
+        analyseRows(from, to, matrix, violated);
+        return;
+      }
+
+      // Split the range where it holds half of its edges, so both halves have similar work
+      int middleEdge = (adjacency.rowStart(from) + adjacency.rowEnd(to - 1)) >>> 1;
+      int low = from + 1;
+      int high = to - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (adjacency.rowStart(middle) < middleEdge) {
+          low = middle + 1;
+        } else {
+          high = middle;
         }
       }
-      // Swap the element at i with the element at least
-      swap(i, least, list);
+      invokeAll(
+          new AnalyseRows(from, low, matrix, violated), new AnalyseRows(low, to, matrix, violated));
+    }
+  }
+
+  /** The relation properties that have been violated and a counterexample to each of them. */
+  private static class Violations {
+    private final AtomicInteger found;
+    private final AtomicReferenceArray<int[]> witnesses = new AtomicReferenceArray<>(4);
+    private final int skipped;
+    private final boolean stopAtFirst;
+
+    /**
+     * The violations found by one pass over the rows.
+     *
+     * @param skipped the bits of the properties that are not checked, which count as violated.
+     * @param stopAtFirst whether the pass is done as soon as any checked property is violated.
+     */
+    private Violations(int skipped, boolean stopAtFirst) {
+      this.found = new AtomicInteger(skipped);
+      this.skipped = skipped;
+      this.stopAtFirst = stopAtFirst;
+    }
+
+    /**
+     * Finds whether the pass has nothing left to check.
+     *
+     * @return true if every property has been violated, or any has when stopping at the first.
+     */
+    private boolean isDone() {
+      int violated = found.get();
+      return violated == ALL_VIOLATED || (stopAtFirst && violated != skipped);
+    }
+
+    /**
+     * Gets the properties that have been violated so far.
+     *
+     * @return the bits of the violated properties.
+     */
+    private int get() {
+      return found.get();
+    }
+
+    /**
+     * Records a violated property, keeping its first counterexample.
+     *
+     * @param property the bit of the violated property.
+     * @param witness the ids of the verticies of the counterexample.
+     */
+    private void record(int property, int... witness) {
+      witnesses.compareAndSet(Integer.numberOfTrailingZeros(property), null, witness);
+      found.accumulateAndGet(property, (x, y) -> x | y);
+    }
+
+    /**
+     * Gets the counterexample of a property.
+     *
+     * @param property the bit of the property.
+     * @return the ids of the verticies of the counterexample, or null if the property holds.
+     */
+    private int[] witness(int property) {
+      return witnesses.get(Integer.numberOfTrailingZeros(property));
     }
   }
 
   /**
-   * Compares two elements numerically and returns the comparison as an integer.
+   * Finds whether the relation is dense enough to be checked with a bit matrix, and small enough
+   * for the bit matrix to fit in memory.
    *
-   * @param a the first element to compare.
-   * @param b the second element to compare.
-   * @return the comparison of the two elements.
+   * @return true if the property checks should use the bit matrix, false otherwise.
    */
-  private int compareNumerically(T a, T b) {
-    // Convert the elements to integers to compare them numerically
-    int valueA = Integer.parseInt(a.toString());
-    int valueB = Integer.parseInt(b.toString());
-    // Return the comparison of the two elements, if a is less than b, return -1, if a is greater
-    // than b, return 1, if a is equal to b, return 0
-    return Integer.compare(valueA, valueB);
+  private boolean useBitMatrix() {
+    long size = dictionary.size();
+    long matrixBytes = size * BitMatrix.wordCount(dictionary.size()) * Long.BYTES;
+    return size > 0
+        && matrixBytes <= BIT_MATRIX_MAX_BYTES
+        && (long) adjacency.edgeCount() * BIT_MATRIX_DENSITY >= size * size;
   }
 
   /**
-   * Swaps two elements in a list.
+   * Gets the adjacency bit matrix of the graph, which is built the first time it is needed.
    *
-   * @param i the index of the first element to swap.
-   * @param j the index of the second element to swap.
-   * @param list the list to swap the elements in.
+   * @return the adjacency bit matrix.
    */
-  private void swap(int i, int j, List<T> list) {
-    T temp = list.get(i);
-    list.set(i, list.get(j));
-    list.set(j, temp);
+  private BitMatrix getBitMatrix() {
+    if (bitMatrix == null) {
+      bitMatrix = BitMatrix.fromAdjacency(adjacency);
+    }
+    return bitMatrix;
   }
 
   /**
    * Runs the depth first search algorithm and modifies the stack and visited list.
    *
    * @param visited the list of visited vertices.
-   * @param stack the stack of vertices to visit.
-   */
-  private void dfsAlgorithm(List<T> visited, Stack<T> stack) {
-
-    for (T vertex : adjacencyMap.keySet()) {
-      // If the vertex is equal to the top of the stack, pop the vertex and add it to the
-      // visited list
-      if (vertex.equals(stack.peek())) {
-        visited.add(stack.pop());
-        // Loop through all the successors of the vertex in descding order and push them to the
-        // stack
-        for (int i = adjacencyMap.get(vertex).size() - 1; i >= 0; i--) {
-          stack.push(adjacencyMap.get(vertex).get(i));
-        }
-        break;
+   * @param done the ids of the vertices that have been visited.
+   * @param stack the stack of vertex ids to visit.
+   */
+  private void dfsAlgorithm(List<T> visited, BitSet done, IntStack stack) {
+    // Pop the vertex at the top of the stack and add it to the visited list
+    int vertex = stack.pop();
+    done.set(vertex);
+    visited.add(dictionary.vertexOf(vertex));
+
+    // Loop through all the successors of the vertex in descending order and push the ones that
+    // have not been visited to the stack
+    for (int i = adjacency.rowEnd(vertex) - 1; i >= adjacency.rowStart(vertex); i--) {
+      if (!done.get(adjacency.target(i))) {
+        stack.push(adjacency.target(i));
       }
     }
 
     // If the vertex at the top of the stack has already been added to the visited list, pop it
-    while (!stack.isEmpty() && visited.contains(stack.peek())) {
+    while (!stack.isEmpty() && done.get(stack.peek())) {
       stack.pop();
     }
   }
 
   /**
-   * Runs the breadth first search algorithm and modifies the queue and visited list.
+   * Runs the breadth first search algorithm and modifies the queue and visited list. A vertex is
+   * marked as discovered when it is enqueued, so it is never enqueued twice and the visiting order
+   * is the same as dequeuing duplicates and skipping them.
    *
    * @param visited the list of visited vertices.
-   * @param queue the queue of vertices to visit.
-   */
-  private void bfsAlgorithm(List<T> visited, Queue<T> queue) {
-
-    // Loop through all the vertices in the graph
-    for (T vertex : adjacencyMap.keySet()) {
-      // If the vertex is at the front of the queue, dequeue the vertex and add it to the visited
-      // list
-      if (vertex.equals(queue.peek())) {
-        visited.add(queue.dequeue());
-        // Loop through all the successors of the vertex and enqueue them
-        for (int i = 0; i < adjacencyMap.get(vertex).size(); i++) {
-          queue.enqueue(adjacencyMap.get(vertex).get(i));
-        }
-        break;
+   * @param discovered the ids of the vertices that have been added to the queue.
+   * @param queue the queue of vertex ids to visit.
+   */
+  private void bfsAlgorithm(List<T> visited, BitSet discovered, IntQueue queue) {
+    // Dequeue the vertex at the front of the queue and add it to the visited list
+    int vertex = queue.dequeue();
+    visited.add(dictionary.vertexOf(vertex));
+
+    // Loop through all the successors of the vertex and enqueue the ones not yet discovered
+    for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+      int successor = adjacency.target(i);
+      if (!discovered.get(successor)) {
+        discovered.set(successor);
+        queue.enqueue(successor);
       }
     }
-
-    // If the vertex at the front of the queue has already been added to the visited list, dequeue
-    // it
-    while (!queue.isEmpty() && visited.contains(queue.peek())) {
-      queue.dequeue();
-    }
   }
 }
@@ -0,0 +1,227 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Builds a graph from a stream of verticies and edges without collecting them into sets first.
+ *
+ * <p>Each distinct vertex is given an index in the order it is first added, and edges are stored
+ * as pairs of indices in growable int arrays, so the memory used is proportional to the final
+ * graph. Once there are as many edges as the off-heap edge threshold, the arrays are moved outside
+ * of the heap, so the edges of very large graphs are never held on the heap.
+ *
+ * @param <T> The type of each vertex, that have a total ordering.
+ */
+public class GraphBuilder<T extends Comparable<T>> {
+  /** Graphs with at least this many edges store their adjacency outside of the heap by default. */
+  public static final int DEFAULT_OFF_HEAP_EDGE_THRESHOLD = 1 << 24;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // The largest length of an array, which is the most edges a graph can have
+  private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  private final List<T> verticies;
+  private final Map<T, Integer> indexByVertex;
+  private int[] sources;
+  private int[] destinations;
+  private DirectIntArray directSources;
+  private DirectIntArray directDestinations;
+  private int capacity;
+  private int edgeCount;
+  private int offHeapEdgeThreshold = DEFAULT_OFF_HEAP_EDGE_THRESHOLD;
+
+  /** Builds a graph from a stream of verticies and edges. */
+  public GraphBuilder() {
+    verticies = new ArrayList<T>();
+    indexByVertex = new HashMap<T, Integer>();
+    sources = new int[INITIAL_CAPACITY];
+    destinations = new int[INITIAL_CAPACITY];
+    capacity = INITIAL_CAPACITY;
+    edgeCount = 0;
+  }
+
+  /**
+   * Adds a vertex to the graph if it has not been added already.
+   *
+   * @param vertex the vertex to add.
+   * @return the index of the vertex, in the order verticies were first added.
+   */
+  public int addVertex(T vertex) {
+    Integer index = indexByVertex.get(vertex);
+    if (index == null) {
+      index = verticies.size();
+      verticies.add(vertex);
+      indexByVertex.put(vertex, index);
+    }
+    return index;
+  }
+
+  /**
+   * Adds an edge between two verticies that have already been added.
+   *
+   * @param source the index of the source vertex.
+   * @param destination the index of the destination vertex.
+   */
+  public void addEdge(int source, int destination) {
+    checkNotBuilt();
+    if (source < 0
+        || source >= verticies.size()
+        || destination < 0
+        || destination >= verticies.size()) {
+      throw new IndexOutOfBoundsException("the edge refers to a vertex that was not added");
+    }
+
+    if (edgeCount == capacity) {
+      grow();
+    }
+    if (directSources != null) {
+      directSources.set(edgeCount, source);
+      directDestinations.set(edgeCount, destination);
+    } else {
+      sources[edgeCount] = source;
+      destinations[edgeCount] = destination;
+    }
+    edgeCount++;
+  }
+
+  /**
+   * Doubles the capacity of the full edge arrays, up to the largest length of an array, moving
+   * them outside of the heap if they hold at least the off-heap edge threshold of edges.
+   *
+   * @throws IllegalStateException if the arrays already have the largest length of an array.
+   */
+  private void grow() {
+    if (capacity == MAX_CAPACITY) {
+      throw new IllegalStateException("a graph cannot have more than " + MAX_CAPACITY + " edges");
+    }
+    capacity = (int) Math.min(2L * capacity, MAX_CAPACITY);
+
+    if (directSources != null) {
+      DirectIntArray grownSources = directSources.copyOf(capacity);
+      directSources.release();
+      directSources = grownSources;
+      DirectIntArray grownDestinations = directDestinations.copyOf(capacity);
+      directDestinations.release();
+      directDestinations = grownDestinations;
+    } else if (edgeCount >= offHeapEdgeThreshold) {
+      directSources = new DirectIntArray(capacity);
+      directDestinations = new DirectIntArray(capacity);
+      directSources.set(0, sources, edgeCount);
+      directDestinations.set(0, destinations, edgeCount);
+      sources = null;
+      destinations = null;
+    } else {
+      sources = Arrays.copyOf(sources, capacity);
+      destinations = Arrays.copyOf(destinations, capacity);
+    }
+  }
+
+  /**
+   * Adds an edge between two verticies, adding the verticies first if needed.
+   *
+   * @param source the source vertex.
+   * @param destination the destination vertex.
+   */
+  public void addEdge(T source, T destination) {
+    addEdge(addVertex(source), addVertex(destination));
+  }
+
+  /**
+   * Sets how many edges a graph needs before its adjacency is stored outside of the heap.
+   *
+   * @param offHeapEdgeThreshold the smallest number of edges to store off the heap.
+   */
+  public void setOffHeapEdgeThreshold(int offHeapEdgeThreshold) {
+    if (offHeapEdgeThreshold < 0) {
+      throw new IllegalArgumentException("the off-heap edge threshold must not be negative");
+    }
+    this.offHeapEdgeThreshold = offHeapEdgeThreshold;
+  }
+
+  public int vertexCount() {
+    return verticies.size();
+  }
+
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Checks that the graph has not been built yet, as building it frees the edges of the builder.
+   *
+   * @throws IllegalStateException if the graph has already been built.
+   */
+  private void checkNotBuilt() {
+    if (sources == null && directSources == null) {
+      throw new IllegalStateException("the graph has already been built");
+    }
+  }
+
+  /**
+   * Builds the graph from the verticies and edges added so far. Graphs with at least the off-heap
+   * edge threshold of edges store their adjacency outside of the heap, and should be closed once
+   * they are no longer needed.
+   *
+   * <p>The edges of the builder are freed once the graph is built, so the builder cannot be used
+   * afterwards.
+   *
+   * @return the graph.
+   * @throws IllegalStateException if the graph has already been built.
+   */
+  public Graph<T> build() {
+    checkNotBuilt();
+
+    // Intern the verticies to ids in ascending numerical order
+    VertexDictionary<T> dictionary = new VertexDictionary<T>(verticies);
+
+    // Translate the insertion indices of the edges to ids as they are read
+    int[] idOfIndex = new int[verticies.size()];
+    for (int index = 0; index < verticies.size(); index++) {
+      idOfIndex[index] = dictionary.idOf(verticies.get(index));
+    }
+    IntUnaryOperator sourceIds;
+    IntUnaryOperator destinationIds;
+    if (directSources != null) {
+      sourceIds = i -> idOfIndex[directSources.get(i)];
+      destinationIds = i -> idOfIndex[directDestinations.get(i)];
+    } else {
+      sourceIds = i -> idOfIndex[sources[i]];
+      destinationIds = i -> idOfIndex[destinations[i]];
+    }
+
+    // Large graphs are streamed into rows straight into memory outside of the heap, and small
+    // graphs are copied into heap arrays that are grouped into rows in place
+    Adjacency adjacency;
+    if (edgeCount >= offHeapEdgeThreshold) {
+      adjacency =
+          OffHeapCsrAdjacency.fromEdges(dictionary.size(), sourceIds, destinationIds, edgeCount);
+    } else {
+      int[] sourceIdArray = new int[edgeCount];
+      int[] destinationIdArray = new int[edgeCount];
+      for (int i = 0; i < edgeCount; i++) {
+        sourceIdArray[i] = sourceIds.applyAsInt(i);
+        destinationIdArray[i] = destinationIds.applyAsInt(i);
+      }
+      adjacency =
+          CsrAdjacency.fromEdges(dictionary.size(), sourceIdArray, destinationIdArray, edgeCount);
+    }
+
+    // Free the edges now that they are in the adjacency, rather than holding them outside of the
+    // heap for as long as the builder is reachable
+    if (directSources != null) {
+      directSources.release();
+      directDestinations.release();
+    }
+    sources = null;
+    destinations = null;
+    directSources = null;
+    directDestinations = null;
+    return new Graph<T>(dictionary, adjacency);
+  }
+}
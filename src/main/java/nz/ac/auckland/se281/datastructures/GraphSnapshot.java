@@ -0,0 +1,556 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Writes graphs to, and reads them back from, a compact binary snapshot file.
+ *
+ * <p>A snapshot holds the interned verticies and CSR adjacency of a graph exactly as they are in
+ * memory, so reopening a graph is a few bulk reads instead of parsing and sorting it again. All
+ * values are big endian, and the file is laid out as:
+ *
+ * <ul>
+ *   <li>a header of the magic number, format version, flags, vertex count, edge count and the
+ *       number of bytes of vertex names
+ *   <li>the numerical sort key of every vertex, in id order
+ *   <li>the offset of every vertex name, with one extra trailing entry, followed by the UTF-8
+ *       bytes of the names, padded to a multiple of four bytes
+ *   <li>the CSR offsets and targets of the adjacency
+ *   <li>the in degree of every vertex, if {@link #HAS_DEGREES} is set
+ *   <li>the relation property bits, if {@link #HAS_PROPERTIES} is set
+ * </ul>
+ */
+public class GraphSnapshot {
+  public static final int MAGIC = 0x47534e50;
+  public static final int VERSION = 1;
+
+  public static final int HAS_DEGREES = 1;
+  public static final int HAS_PROPERTIES = 1 << 1;
+
+  private static final int REFLEXIVE = 1;
+  private static final int SYMMETRIC = 1 << 1;
+  private static final int ANTI_SYMMETRIC = 1 << 2;
+  private static final int TRANSITIVE = 1 << 3;
+
+  private static final int HEADER_INTS = 6;
+
+  // Arrays are copied to and from the file through buffers of at most this many bytes
+  private static final int BLOCK_BYTES = 1 << 20;
+
+  /** Thrown when a file is not a snapshot, or is a snapshot in a format that cannot be read. */
+  public static class InvalidSnapshotException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Thrown when a file is not a readable snapshot.
+     *
+     * @param message a description of what is wrong with the file.
+     */
+    public InvalidSnapshotException(String message) {
+      super(message);
+    }
+  }
+
+  private GraphSnapshot() {}
+
+  /**
+   * Writes a graph to a snapshot file, replacing the file if it exists. The in degrees are always
+   * saved, and the relation properties are saved if they have already been analysed. The graph may
+   * be one that is mapped from the file being replaced.
+   *
+   * @param graph the graph to write.
+   * @param file the file to write the snapshot to.
+   * @throws IOException if the file cannot be written.
+   */
+  public static void write(Graph<?> graph, Path file) throws IOException {
+    VertexDictionary<?> dictionary = graph.getDictionary();
+    Adjacency adjacency = graph.getAdjacency();
+    RelationProperties properties = graph.getCachedRelationProperties();
+    int vertexCount = dictionary.size();
+
+    // Encode the vertex names and record where each one starts
+    int[] sortKeys = new int[vertexCount];
+    int[] nameOffsets = new int[vertexCount + 1];
+    List<byte[]> names = new ArrayList<byte[]>(vertexCount);
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      byte[] name = dictionary.vertexOf(vertex).toString().getBytes(StandardCharsets.UTF_8);
+      names.add(name);
+      sortKeys[vertex] = dictionary.sortKey(vertex);
+      nameOffsets[vertex + 1] = Math.addExact(nameOffsets[vertex], name.length);
+    }
+
+    int edgeCount = adjacency.edgeCount();
+
+    // Write to a temporary file that is moved over the snapshot once it is complete, so a graph
+    // that is still mapped from the old file never sees it truncated
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    int flags = HAS_DEGREES | (properties == null ? 0 : HAS_PROPERTIES);
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeInts(
+          channel,
+          new int[] {
+            MAGIC, VERSION, flags, vertexCount, edgeCount, nameOffsets[vertexCount]
+          });
+      writeInts(channel, sortKeys);
+      writeInts(channel, nameOffsets);
+      writeNames(channel, names);
+      // The adjacency is written straight from its rows, so it is never copied onto the heap
+      writeInts(
+          channel, vertexCount + 1, index -> index == 0 ? 0 : adjacency.rowEnd(index - 1));
+      writeInts(channel, edgeCount, adjacency::target);
+      writeInts(channel, graph.getInDegrees());
+      if (properties != null) {
+        writeInts(channel, new int[] {propertyBits(properties)});
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    Files.move(
+        temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads a graph back from a snapshot file, copying its adjacency onto the heap.
+   *
+   * @param file the file to read the snapshot from.
+   * @return the graph.
+   * @throws InvalidSnapshotException if the file is not a readable snapshot.
+   * @throws IOException if the file cannot be read.
+   */
+  public static Graph<String> read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Layout layout = new Layout(channel);
+
+      // Read the adjacency, and check it describes a graph over the verticies
+      int[] offsets = readInts(channel, layout.offsetsPosition(), layout.vertexCount + 1);
+      int[] targets = readInts(channel, layout.targetsPosition(), layout.edgeCount);
+      checkOffsets(offsets.length, offsets.length - 1, targets.length, index -> offsets[index]);
+      int[] inDegrees =
+          checkTargets(layout.vertexCount, index -> offsets[index], index -> targets[index]);
+
+      return restore(channel, layout, new CsrAdjacency(offsets, targets), inDegrees);
+    }
+  }
+
+  /**
+   * Opens a graph from a snapshot file without copying its adjacency onto the heap, and without
+   * reading the whole adjacency. See {@link #map(Path, boolean)}.
+   *
+   * @param file the file to map the snapshot from.
+   * @return the graph.
+   * @throws InvalidSnapshotException if the file is not a readable snapshot.
+   * @throws IOException if the file cannot be mapped.
+   */
+  public static Graph<String> map(Path file) throws IOException {
+    return map(file, false);
+  }
+
+  /**
+   * Opens a graph from a snapshot file without copying its adjacency onto the heap. The offsets and
+   * targets are read straight from a read-only memory map of the file, so processes that open the
+   * same file share its pages.
+   *
+   * <p>Without verifying, only the header, the size of every section and the first and last
+   * offsets are checked, and the saved in degrees are trusted, so opening takes the same time
+   * however large the graph is. A snapshot whose adjacency is corrupt may then fail during a later
+   * query instead. Verifying checks every offset and target and recounts the in degrees in one
+   * sequential read of the mapping, so a corrupt snapshot fails here.
+   *
+   * @param file the file to map the snapshot from.
+   * @param verify whether to check the whole adjacency as the file is opened.
+   * @return the graph.
+   * @throws InvalidSnapshotException if the file is not a readable snapshot.
+   * @throws IOException if the file cannot be mapped.
+   */
+  public static Graph<String> map(Path file, boolean verify) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Layout layout = new Layout(channel);
+
+      // Map the adjacency, and check it describes a graph over the verticies
+      MappedIntArray offsets =
+          MappedIntArray.map(channel, layout.offsetsPosition(), layout.vertexCount + 1);
+      MappedIntArray targets =
+          MappedIntArray.map(channel, layout.targetsPosition(), layout.edgeCount);
+      if (offsets.get(0) != 0 || offsets.get(layout.vertexCount) != layout.edgeCount) {
+        throw new InvalidSnapshotException("the snapshot adjacency is corrupt");
+      }
+      int[] inDegrees = null;
+      if (verify) {
+        checkOffsets(offsets.length(), layout.vertexCount, layout.edgeCount, offsets::get);
+        inDegrees = checkTargets(layout.vertexCount, offsets::get, targets::get);
+      }
+
+      return restore(channel, layout, new MappedCsrAdjacency(offsets, targets), inDegrees);
+    }
+  }
+
+  /**
+   * Reads the verticies and relation properties of a snapshot and combines them with its
+   * adjacency. If the in degrees were counted from the adjacency, any saved in degrees must match
+   * them, and otherwise the saved in degrees are used as they are.
+   *
+   * @param channel the channel of the snapshot file.
+   * @param layout the layout of the snapshot file.
+   * @param adjacency the adjacency of the graph.
+   * @param inDegrees the in degree of every vertex counted from the adjacency, or null if they
+   *     were not counted.
+   * @return the graph.
+   */
+  private static Graph<String> restore(
+      FileChannel channel, Layout layout, Adjacency adjacency, int[] inDegrees)
+      throws IOException {
+    // Read the verticies in id order, which is already ascending numerical order
+    int[] sortKeys = readInts(channel, layout.sortKeysPosition(), layout.vertexCount);
+    int[] nameOffsets = readInts(channel, layout.nameOffsetsPosition(), layout.vertexCount + 1);
+    if (nameOffsets[layout.vertexCount] != layout.nameBytes) {
+      throw new InvalidSnapshotException("the snapshot vertex names are corrupt");
+    }
+    List<String> verticies = readNames(channel, layout.namesPosition(), nameOffsets);
+
+    if ((layout.flags & HAS_DEGREES) != 0) {
+      int[] saved = readInts(channel, layout.degreesPosition(), layout.vertexCount);
+      if (inDegrees == null) {
+        inDegrees = saved;
+      } else if (!Arrays.equals(inDegrees, saved)) {
+        throw new InvalidSnapshotException("the snapshot in degrees are corrupt");
+      }
+    }
+    RelationProperties properties = null;
+    if ((layout.flags & HAS_PROPERTIES) != 0) {
+      properties = fromPropertyBits(readInts(channel, layout.propertiesPosition(), 1)[0]);
+    }
+
+    return new Graph<String>(
+        new VertexDictionary<String>(verticies, sortKeys), adjacency, inDegrees, properties);
+  }
+
+  /**
+   * Checks that CSR offsets read from a file start at zero, never decrease and end at the number
+   * of targets.
+   *
+   * @param length the number of offsets.
+   * @param vertexCount the number of verticies.
+   * @param edgeCount the number of targets.
+   * @param offsets the offsets, by index.
+   * @throws InvalidSnapshotException if the offsets are inconsistent.
+   */
+  private static void checkOffsets(
+      int length, int vertexCount, int edgeCount, IntUnaryOperator offsets)
+      throws InvalidSnapshotException {
+    if (length != vertexCount + 1
+        || offsets.applyAsInt(0) != 0
+        || offsets.applyAsInt(vertexCount) != edgeCount) {
+      throw new InvalidSnapshotException("the snapshot adjacency is corrupt");
+    }
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      if (offsets.applyAsInt(vertex) > offsets.applyAsInt(vertex + 1)) {
+        throw new InvalidSnapshotException("the snapshot adjacency is corrupt");
+      }
+    }
+  }
+
+  /**
+   * Checks that every target read from a file is a vertex and that every row is in strictly
+   * ascending order, as the queries on the adjacency expect, and counts the in degrees.
+   *
+   * @param vertexCount the number of verticies.
+   * @param offsets the offsets, by index, which must already have been checked.
+   * @param targets the targets, by index.
+   * @return the in degree of every vertex.
+   * @throws InvalidSnapshotException if a target is not a vertex or a row is out of order.
+   */
+  private static int[] checkTargets(
+      int vertexCount, IntUnaryOperator offsets, IntUnaryOperator targets)
+      throws InvalidSnapshotException {
+    int[] inDegrees = new int[vertexCount];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int previous = -1;
+      for (int i = offsets.applyAsInt(vertex); i < offsets.applyAsInt(vertex + 1); i++) {
+        int target = targets.applyAsInt(i);
+        if (target <= previous || target >= vertexCount) {
+          throw new InvalidSnapshotException("the snapshot adjacency is corrupt");
+        }
+        inDegrees[target]++;
+        previous = target;
+      }
+    }
+    return inDegrees;
+  }
+
+  /** The counts from the header of a snapshot file, and where each section of the file starts. */
+  private static class Layout {
+    private final int flags;
+    private final int vertexCount;
+    private final int edgeCount;
+    private final int nameBytes;
+
+    /**
+     * Reads and checks the header of a snapshot file.
+     *
+     * @param channel the channel of the snapshot file.
+     * @throws InvalidSnapshotException if the file is not a readable snapshot.
+     */
+    private Layout(FileChannel channel) throws IOException {
+      // Check the header before trusting any of the counts in it
+      if (channel.size() < HEADER_INTS * Integer.BYTES) {
+        throw new InvalidSnapshotException("the file is too short to be a snapshot");
+      }
+      int[] header = readInts(channel, 0, HEADER_INTS);
+      if (header[0] != MAGIC) {
+        throw new InvalidSnapshotException("the file is not a graph snapshot");
+      }
+      if (header[1] != VERSION) {
+        throw new InvalidSnapshotException("unsupported snapshot version " + header[1]);
+      }
+      flags = header[2];
+      vertexCount = header[3];
+      edgeCount = header[4];
+      nameBytes = header[5];
+      if (vertexCount < 0
+          || edgeCount < 0
+          || nameBytes < 0
+          || channel.size() != endPosition()) {
+        throw new InvalidSnapshotException("the snapshot is truncated or corrupt");
+      }
+    }
+
+    private long sortKeysPosition() {
+      return (long) HEADER_INTS * Integer.BYTES;
+    }
+
+    private long nameOffsetsPosition() {
+      return sortKeysPosition() + (long) vertexCount * Integer.BYTES;
+    }
+
+    private long namesPosition() {
+      return nameOffsetsPosition() + (vertexCount + 1L) * Integer.BYTES;
+    }
+
+    private long offsetsPosition() {
+      return namesPosition() + padded(nameBytes);
+    }
+
+    private long targetsPosition() {
+      return offsetsPosition() + (vertexCount + 1L) * Integer.BYTES;
+    }
+
+    private long degreesPosition() {
+      return targetsPosition() + (long) edgeCount * Integer.BYTES;
+    }
+
+    private long propertiesPosition() {
+      long degreeBytes = (flags & HAS_DEGREES) != 0 ? (long) vertexCount * Integer.BYTES : 0;
+      return degreesPosition() + degreeBytes;
+    }
+
+    private long endPosition() {
+      return propertiesPosition() + ((flags & HAS_PROPERTIES) != 0 ? Integer.BYTES : 0);
+    }
+  }
+
+  /**
+   * Writes an array of ints to the channel in blocks.
+   *
+   * @param channel the channel to write to.
+   * @param values the ints to write.
+   */
+  private static void writeInts(FileChannel channel, int[] values) throws IOException {
+    ByteBuffer block = ByteBuffer.allocate(Math.min(BLOCK_BYTES, values.length * Integer.BYTES));
+    int written = 0;
+    while (written < values.length) {
+      int count = Math.min(block.capacity() / Integer.BYTES, values.length - written);
+      block.clear();
+      block.asIntBuffer().put(values, written, count);
+      block.limit(count * Integer.BYTES);
+      while (block.hasRemaining()) {
+        channel.write(block);
+      }
+      written += count;
+    }
+  }
+
+  /**
+   * Writes a sequence of ints to the channel in blocks, reading each one as it is needed.
+   *
+   * @param channel the channel to write to.
+   * @param count the number of ints to write.
+   * @param values the int at each index of the sequence.
+   */
+  private static void writeInts(FileChannel channel, int count, IntUnaryOperator values)
+      throws IOException {
+    ByteBuffer block =
+        ByteBuffer.allocate((int) Math.min(BLOCK_BYTES, (long) count * Integer.BYTES));
+    int written = 0;
+    while (written < count) {
+      int blockCount = Math.min(block.capacity() / Integer.BYTES, count - written);
+      block.clear();
+      for (int i = 0; i < blockCount; i++) {
+        block.putInt(values.applyAsInt(written + i));
+      }
+      block.flip();
+      while (block.hasRemaining()) {
+        channel.write(block);
+      }
+      written += blockCount;
+    }
+  }
+
+  /**
+   * Writes the encoded vertex names to the channel, padded to a multiple of four bytes.
+   *
+   * @param channel the channel to write to.
+   * @param names the encoded name of every vertex.
+   */
+  private static void writeNames(FileChannel channel, List<byte[]> names) throws IOException {
+    ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+    long length = 0;
+    for (byte[] name : names) {
+      // Flush the block when the next name does not fit, writing long names directly
+      if (name.length > block.remaining()) {
+        flush(channel, block);
+      }
+      if (name.length > block.capacity()) {
+        ByteBuffer direct = ByteBuffer.wrap(name);
+        while (direct.hasRemaining()) {
+          channel.write(direct);
+        }
+      } else {
+        block.put(name);
+      }
+      length += name.length;
+    }
+    for (long i = length; i < padded(length); i++) {
+      if (!block.hasRemaining()) {
+        flush(channel, block);
+      }
+      block.put((byte) 0);
+    }
+    flush(channel, block);
+  }
+
+  /**
+   * Writes the filled part of a buffer to the channel and clears it.
+   *
+   * @param channel the channel to write to.
+   * @param block the buffer, with its position at the end of the bytes to write.
+   */
+  private static void flush(FileChannel channel, ByteBuffer block) throws IOException {
+    block.flip();
+    while (block.hasRemaining()) {
+      channel.write(block);
+    }
+    block.clear();
+  }
+
+  /**
+   * Reads an array of ints from the channel in blocks.
+   *
+   * @param channel the channel to read from.
+   * @param position the offset of the first int.
+   * @param count the number of ints to read.
+   * @return the ints.
+   */
+  private static int[] readInts(FileChannel channel, long position, int count)
+      throws IOException {
+    int[] values = new int[count];
+    int read = 0;
+    while (read < count) {
+      int chunk = Math.min(BLOCK_BYTES / Integer.BYTES, count - read);
+      long offset = position + (long) read * Integer.BYTES;
+      ByteBuffer block = readFully(channel, offset, chunk * Integer.BYTES);
+      block.asIntBuffer().get(values, read, chunk);
+      read += chunk;
+    }
+    return values;
+  }
+
+  /**
+   * Reads the vertex names from the channel.
+   *
+   * @param channel the channel to read from.
+   * @param position the offset of the first name.
+   * @param nameOffsets the offset of every name, with one extra trailing entry.
+   * @return the names in id order.
+   * @throws InvalidSnapshotException if the offsets do not describe the names.
+   */
+  private static List<String> readNames(FileChannel channel, long position, int[] nameOffsets)
+      throws IOException {
+    int vertexCount = nameOffsets.length - 1;
+    int nameBytes = nameOffsets[vertexCount];
+    if (nameOffsets[0] != 0) {
+      throw new InvalidSnapshotException("the snapshot vertex names are corrupt");
+    }
+
+    ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, nameBytes);
+    List<String> names = new ArrayList<String>(vertexCount);
+    byte[] name = new byte[0];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int start = nameOffsets[vertex];
+      int end = nameOffsets[vertex + 1];
+      if (start > end || end > nameBytes) {
+        throw new InvalidSnapshotException("the snapshot vertex names are corrupt");
+      }
+      if (name.length < end - start) {
+        name = new byte[end - start];
+      }
+      bytes.get(start, name, 0, end - start);
+      names.add(new String(name, 0, end - start, StandardCharsets.UTF_8));
+    }
+    return names;
+  }
+
+  /**
+   * Reads a block of bytes from the channel.
+   *
+   * @param channel the channel to read from.
+   * @param position the offset to read from.
+   * @param length the number of bytes to read.
+   * @return a buffer holding the bytes.
+   */
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer block = ByteBuffer.allocate(length);
+    while (block.hasRemaining()) {
+      if (channel.read(block, position + block.position()) == -1) {
+        throw new InvalidSnapshotException("the snapshot is truncated");
+      }
+    }
+    return block.flip();
+  }
+
+  private static long padded(long length) {
+    return (length + 3) & ~3L;
+  }
+
+  private static int propertyBits(RelationProperties properties) {
+    return (properties.isReflexive() ? REFLEXIVE : 0)
+        | (properties.isSymmetric() ? SYMMETRIC : 0)
+        | (properties.isAntiSymmetric() ? ANTI_SYMMETRIC : 0)
+        | (properties.isTransitive() ? TRANSITIVE : 0);
+  }
+
+  private static RelationProperties fromPropertyBits(int bits) {
+    return new RelationProperties(
+        (bits & REFLEXIVE) != 0,
+        (bits & SYMMETRIC) != 0,
+        (bits & ANTI_SYMMETRIC) != 0,
+        (bits & TRANSITIVE) != 0);
+  }
+}
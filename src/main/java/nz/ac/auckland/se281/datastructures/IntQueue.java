@@ -0,0 +1,84 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.NoSuchElementException;
+
+/** A queue of ints, stored in a circular buffer that grows when it is full. */
+public class IntQueue {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] elements;
+  private int front;
+  private int length;
+
+  /** A queue of ints. */
+  public IntQueue() {
+    elements = new int[INITIAL_CAPACITY];
+    front = 0;
+    length = 0;
+  }
+
+  /**
+   * Adds an element to the end of the queue.
+   *
+   * @param data the element to be added.
+   */
+  public void enqueue(int data) {
+    // If the buffer is full, double its capacity
+    if (length == elements.length) {
+      grow();
+    }
+    // Store the element in the slot after the rear, wrapping around the end of the buffer
+    elements[(front + length) & (elements.length - 1)] = data;
+    length++;
+  }
+
+  /**
+   * Removes the first element from the queue and returns it.
+   *
+   * @return the first element of the queue.
+   */
+  public int dequeue() {
+    if (isEmpty()) {
+      throw new NoSuchElementException("the queue is empty");
+    }
+    int dequeued = elements[front];
+    front = (front + 1) & (elements.length - 1);
+    length--;
+    return dequeued;
+  }
+
+  /**
+   * Gets the first element of the queue without removing it.
+   *
+   * @return the first element of the queue.
+   */
+  public int peek() {
+    if (isEmpty()) {
+      throw new NoSuchElementException("the queue is empty");
+    }
+    return elements[front];
+  }
+
+  public int size() {
+    return length;
+  }
+
+  /**
+   * Checks if the queue is empty.
+   *
+   * @return true if the queue is empty, false otherwise.
+   */
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  /** Doubles the capacity of the buffer, moving the elements so the front is at index 0. */
+  private void grow() {
+    int[] larger = new int[elements.length * 2];
+    for (int i = 0; i < length; i++) {
+      larger[i] = elements[(front + i) & (elements.length - 1)];
+    }
+    elements = larger;
+    front = 0;
+  }
+}
@@ -0,0 +1,68 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** A stack of ints, stored in an array that grows when it is full. */
+public class IntStack {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] elements;
+  private int size;
+
+  /** A stack of ints. */
+  public IntStack() {
+    elements = new int[INITIAL_CAPACITY];
+    size = 0;
+  }
+
+  /**
+   * Adds an element to the top of the stack.
+   *
+   * @param data the element to be added.
+   */
+  public void push(int data) {
+    // If the array is full, double its capacity
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, elements.length * 2);
+    }
+    elements[size++] = data;
+  }
+
+  /**
+   * Removes the top element from the stack and returns it.
+   *
+   * @return the top element of the stack.
+   */
+  public int pop() {
+    if (isEmpty()) {
+      throw new NoSuchElementException("the stack is empty");
+    }
+    return elements[--size];
+  }
+
+  /**
+   * Gets the top element of the stack without removing it.
+   *
+   * @return the top element of the stack.
+   */
+  public int peek() {
+    if (isEmpty()) {
+      throw new NoSuchElementException("the stack is empty");
+    }
+    return elements[size - 1];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the stack is empty.
+   *
+   * @return true if the stack is empty, false otherwise.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+}
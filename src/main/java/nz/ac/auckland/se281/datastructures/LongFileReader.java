@@ -0,0 +1,122 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the longs of a range of a file in order through a buffer, with a look at the next long
+ * before it is taken.
+ */
+public class LongFileReader implements Closeable {
+  private static final int BUFFER_LONGS = 1 << 10;
+
+  private final FileChannel channel;
+  private final boolean ownsChannel;
+  private final ByteBuffer buffer;
+  private LongBuffer longs;
+  private long position;
+  private final long end;
+
+  /**
+   * Reads every long of a file.
+   *
+   * @param file the path of the file.
+   * @throws IOException if the file cannot be opened.
+   */
+  public LongFileReader(Path file) throws IOException {
+    this(FileChannel.open(file, StandardOpenOption.READ), true, 0, Files.size(file));
+  }
+
+  /**
+   * Reads the longs in a range of an open file. Closing the reader leaves the channel open.
+   *
+   * @param channel the channel of the file.
+   * @param first the index of the first long to read.
+   * @param count the number of longs to read.
+   */
+  public LongFileReader(FileChannel channel, long first, long count) {
+    this(channel, false, first * Long.BYTES, (first + count) * Long.BYTES);
+  }
+
+  /**
+   * Reads the longs between two offsets of a file.
+   *
+   * @param channel the channel of the file.
+   * @param ownsChannel whether closing the reader closes the channel.
+   * @param position the offset of the first long.
+   * @param end the offset just past the last long.
+   */
+  private LongFileReader(FileChannel channel, boolean ownsChannel, long position, long end) {
+    this.channel = channel;
+    this.ownsChannel = ownsChannel;
+    this.buffer = ByteBuffer.allocate(BUFFER_LONGS * Long.BYTES);
+    this.longs = buffer.asLongBuffer().limit(0);
+    this.position = position;
+    this.end = end;
+  }
+
+  /**
+   * Finds whether there is another long to read.
+   *
+   * @return true if there is another long, false at the end of the range.
+   * @throws IOException if the file cannot be read.
+   */
+  public boolean hasNext() throws IOException {
+    if (!longs.hasRemaining()) {
+      fill();
+    }
+    return longs.hasRemaining();
+  }
+
+  /**
+   * Gets the next long without taking it. There must be another long.
+   *
+   * @return the next long.
+   * @throws IOException if the file cannot be read.
+   */
+  public long peek() throws IOException {
+    hasNext();
+    return longs.get(longs.position());
+  }
+
+  /**
+   * Takes the next long. There must be another long.
+   *
+   * @return the next long.
+   * @throws IOException if the file cannot be read.
+   */
+  public long next() throws IOException {
+    hasNext();
+    return longs.get();
+  }
+
+  /** Closes the file if the reader opened it. */
+  @Override
+  public void close() throws IOException {
+    if (ownsChannel) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads the next block of longs of the range into the buffer.
+   *
+   * @throws IOException if the file cannot be read.
+   */
+  private void fill() throws IOException {
+    buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("file ended before the last long");
+      }
+    }
+    position += buffer.position();
+    longs = buffer.flip().asLongBuffer();
+  }
+}
@@ -0,0 +1,89 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Appends longs to a file through a buffer, for spilling records that do not fit in memory. */
+public class LongFileWriter implements Closeable {
+  private static final int BUFFER_LONGS = 1 << 10;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final LongBuffer longs;
+  private long bytesWritten;
+
+  /**
+   * Opens a file to append longs to, replacing anything already in it.
+   *
+   * @param file the path of the file.
+   * @throws IOException if the file cannot be opened.
+   */
+  public LongFileWriter(Path file) throws IOException {
+    this.file = file;
+    this.channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocate(BUFFER_LONGS * Long.BYTES);
+    this.longs = buffer.asLongBuffer();
+  }
+
+  /**
+   * Appends a long, writing the buffer to the file when it is full.
+   *
+   * @param value the long to append.
+   * @throws IOException if the file cannot be written.
+   */
+  public void append(long value) throws IOException {
+    longs.put(value);
+    if (!longs.hasRemaining()) {
+      flush();
+    }
+  }
+
+  /**
+   * Writes the buffered longs to the file.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  public void flush() throws IOException {
+    buffer.position(0).limit(longs.position() * Long.BYTES);
+    bytesWritten += buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+    longs.clear();
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Gets the number of bytes written to the file so far, not counting longs still buffered.
+   *
+   * @return the number of bytes written.
+   */
+  public long bytesWritten() {
+    return bytesWritten;
+  }
+
+  /** Writes the buffered longs and closes the file. */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative long keys stored in a primitive open addressing hash table with linear
+ * probing.
+ */
+public class LongHashSet {
+  private static final long EMPTY = -1L;
+
+  // The largest power of two length of a long array, at which point the table stops growing and
+  // fills past half full instead
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private long[] table;
+  private int mask;
+  private int size;
+
+  /**
+   * A set of non-negative long keys.
+   *
+   * @param expectedSize the number of keys the set is expected to hold.
+   */
+  public LongHashSet(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("the expected size must not be negative");
+    }
+
+    // Keep the table at most half full so probe sequences stay short
+    long wanted = Long.highestOneBit(Math.max(4L, expectedSize) * 2 - 1) << 1;
+    int capacity = (int) Math.min(wanted, MAX_CAPACITY);
+    table = new long[capacity];
+    Arrays.fill(table, EMPTY);
+    mask = capacity - 1;
+    size = 0;
+  }
+
+  /**
+   * Packs a pair of non-negative ints into one long key.
+   *
+   * @param high the int stored in the upper 32 bits.
+   * @param low the int stored in the lower 32 bits.
+   * @return the packed key.
+   */
+  public static long pack(int high, int low) {
+    return ((long) high << 32) | (low & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Adds a key to the set.
+   *
+   * @param key the non-negative key to add.
+   * @return true if the key was not already in the set, false otherwise.
+   */
+  public boolean add(long key) {
+    if (key < 0) {
+      throw new IllegalArgumentException("keys must be non-negative");
+    }
+
+    // Grow the table before it becomes more than half full
+    if ((size + 1L) * 2 > table.length && table.length < MAX_CAPACITY) {
+      resize();
+    }
+
+    // Probe until the key or an empty slot is found
+    int slot = hash(key) & mask;
+    while (table[slot] != EMPTY) {
+      if (table[slot] == key) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    // A table that can no longer grow always keeps an empty slot, so probing for a missing key
+    // still stops
+    if (size + 1 == table.length) {
+      throw new IllegalStateException("the set cannot hold more than " + size + " keys");
+    }
+    table[slot] = key;
+    size++;
+    return true;
+  }
+
+  /**
+   * Finds whether a key is in the set.
+   *
+   * @param key the key to look for.
+   * @return true if the key is in the set, false otherwise.
+   */
+  public boolean contains(long key) {
+    // Probe until the key or an empty slot is found
+    int slot = hash(key) & mask;
+    while (table[slot] != EMPTY) {
+      if (table[slot] == key) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Doubles the capacity of the table and reinserts every key. */
+  private void resize() {
+    long[] old = table;
+    table = new long[old.length * 2];
+    Arrays.fill(table, EMPTY);
+    mask = table.length - 1;
+
+    for (long key : old) {
+      if (key != EMPTY) {
+        int slot = hash(key) & mask;
+        while (table[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+      }
+    }
+  }
+
+  /**
+   * Mixes the bits of a key so that packed pairs spread evenly over the table.
+   *
+   * @param key the key to hash.
+   * @return the mixed hash of the key.
+   */
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -0,0 +1,58 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * A read-only compressed sparse row adjacency structure whose offsets and targets are read straight
+ * from a memory mapped snapshot file.
+ *
+ * <p>Nothing is copied onto the heap, so opening the graph is immediate, and every process that
+ * maps the same file shares its pages through the operating system page cache.
+ */
+public class MappedCsrAdjacency implements Adjacency {
+  private final MappedIntArray offsets;
+  private final MappedIntArray targets;
+
+  /**
+   * A read-only adjacency structure over mapped arrays.
+   *
+   * @param offsets the start index of each row in targets, with one extra trailing entry.
+   * @param targets the successor ids of every row, each row sorted in ascending order.
+   */
+  public MappedCsrAdjacency(MappedIntArray offsets, MappedIntArray targets) {
+    // The offsets need a trailing entry that marks the end of the last row
+    if (offsets.length() == 0 || offsets.get(offsets.length() - 1) != targets.length()) {
+      throw new IllegalArgumentException("offsets do not describe the targets array");
+    }
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  @Override
+  public int vertexCount() {
+    return offsets.length() - 1;
+  }
+
+  @Override
+  public int edgeCount() {
+    return targets.length();
+  }
+
+  @Override
+  public int rowStart(int vertex) {
+    return offsets.get(vertex);
+  }
+
+  @Override
+  public int rowEnd(int vertex) {
+    return offsets.get(vertex + 1);
+  }
+
+  @Override
+  public int target(int index) {
+    return targets.get(index);
+  }
+
+  @Override
+  public boolean isOnHeap() {
+    return false;
+  }
+}
@@ -0,0 +1,66 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only array of big endian ints that is read straight from a memory mapped file rather than
+ * copied onto the heap.
+ *
+ * <p>A single mapping can hold at most 2 GB, so the array is split into segments of {@code 2^28}
+ * ints that are each mapped separately.
+ */
+public class MappedIntArray {
+  private static final int SEGMENT_SHIFT = 28;
+  private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+  private final IntBuffer[] segments;
+  private final int length;
+
+  private MappedIntArray(IntBuffer[] segments, int length) {
+    this.segments = segments;
+    this.length = length;
+  }
+
+  /**
+   * Maps an array of ints stored in a file. The mapping stays valid after the channel is closed.
+   *
+   * @param channel the channel of the file.
+   * @param position the offset of the first int in the file.
+   * @param length the number of ints in the array.
+   * @return the mapped array.
+   * @throws IOException if the file cannot be mapped.
+   */
+  public static MappedIntArray map(FileChannel channel, long position, int length)
+      throws IOException {
+    int segmentCount = (int) (((long) length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    IntBuffer[] segments = new IntBuffer[segmentCount];
+    for (int segment = 0; segment < segmentCount; segment++) {
+      long first = (long) segment << SEGMENT_SHIFT;
+      long count = Math.min(1L << SEGMENT_SHIFT, length - first);
+      segments[segment] =
+          channel
+              .map(
+                  FileChannel.MapMode.READ_ONLY,
+                  position + first * Integer.BYTES,
+                  count * Integer.BYTES)
+              .asIntBuffer();
+    }
+    return new MappedIntArray(segments, length);
+  }
+
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Gets an element of the array.
+   *
+   * @param index the index of the element.
+   * @return the element.
+   */
+  public int get(int index) {
+    return segments[index >>> SEGMENT_SHIFT].get(index & SEGMENT_MASK);
+  }
+}
@@ -0,0 +1,132 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A compressed sparse row adjacency structure whose offsets and targets are stored in direct
+ * buffers outside of the heap, for graphs with too many edges to hold in heap arrays.
+ *
+ * <p>The memory is held until {@link #close()} is called, after which the adjacency must not be
+ * used.
+ */
+public class OffHeapCsrAdjacency implements Adjacency {
+  private final DirectIntArray offsets;
+  private final DirectIntArray targets;
+
+  private OffHeapCsrAdjacency(DirectIntArray offsets, DirectIntArray targets) {
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Builds the adjacency of a graph from its edges straight into memory outside of the heap. The
+   * edges are read through functions rather than arrays, so they can be streamed from wherever
+   * they are stored without copying them onto the heap first. They are grouped by source with a
+   * counting pass, and each row is sorted and has its duplicate edges removed through a heap buffer
+   * only as large as the largest row.
+   *
+   * @param vertexCount the number of verticies, whose ids are 0 to vertexCount - 1.
+   * @param sources the source id of each edge, by index.
+   * @param destinations the destination id of each edge, by index.
+   * @param edgeCount the number of edges.
+   * @return the adjacency of the graph.
+   */
+  public static OffHeapCsrAdjacency fromEdges(
+      int vertexCount, IntUnaryOperator sources, IntUnaryOperator destinations, int edgeCount) {
+    // Count the out degree of every vertex, shifted by one so the prefix sum gives the offsets
+    DirectIntArray offsets = new DirectIntArray(vertexCount + 1);
+    for (int i = 0; i < edgeCount; i++) {
+      int source = sources.applyAsInt(i);
+      offsets.set(source + 1, offsets.get(source + 1) + 1);
+    }
+    int maxDegree = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      maxDegree = Math.max(maxDegree, offsets.get(vertex + 1));
+      offsets.set(vertex + 1, offsets.get(vertex + 1) + offsets.get(vertex));
+    }
+
+    // Scatter each destination into the row of its source
+    DirectIntArray targets = new DirectIntArray(edgeCount);
+    DirectIntArray next = new DirectIntArray(vertexCount);
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      next.set(vertex, offsets.get(vertex));
+    }
+    for (int i = 0; i < edgeCount; i++) {
+      int source = sources.applyAsInt(i);
+      int slot = next.get(source);
+      targets.set(slot, destinations.applyAsInt(i));
+      next.set(source, slot + 1);
+    }
+    next.release();
+
+    // Sort each row in a heap buffer and compact it to remove duplicate edges, moving it down over
+    // any space freed by earlier rows
+    int[] row = new int[maxDegree];
+    int count = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int start = offsets.get(vertex);
+      int length = offsets.get(vertex + 1) - start;
+      targets.get(start, row, length);
+      Arrays.sort(row, 0, length);
+
+      offsets.set(vertex, count);
+      for (int i = 0; i < length; i++) {
+        if (i == 0 || row[i] != row[i - 1]) {
+          targets.set(count++, row[i]);
+        }
+      }
+    }
+    offsets.set(vertexCount, count);
+
+    // Copy the targets into a smaller array if any duplicates were removed
+    if (count < edgeCount) {
+      DirectIntArray trimmed = targets.copyOf(count);
+      targets.release();
+      targets = trimmed;
+    }
+    return new OffHeapCsrAdjacency(offsets, targets);
+  }
+
+  @Override
+  public int vertexCount() {
+    return offsets.length() - 1;
+  }
+
+  @Override
+  public int edgeCount() {
+    return targets.length();
+  }
+
+  @Override
+  public int rowStart(int vertex) {
+    return offsets.get(vertex);
+  }
+
+  @Override
+  public int rowEnd(int vertex) {
+    return offsets.get(vertex + 1);
+  }
+
+  @Override
+  public int target(int index) {
+    return targets.get(index);
+  }
+
+  @Override
+  public boolean isOnHeap() {
+    return false;
+  }
+
+  @Override
+  public long offHeapBytes() {
+    return offsets.byteSize() + targets.byteSize();
+  }
+
+  /** Releases the memory outside of the heap. The adjacency must not be used afterwards. */
+  @Override
+  public void close() {
+    offsets.release();
+    targets.release();
+  }
+}
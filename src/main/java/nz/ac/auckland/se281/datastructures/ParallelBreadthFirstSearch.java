@@ -0,0 +1,171 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A level synchronous breadth first search that expands each frontier across the workers of a fork
+ * join pool, while visiting the verticies in exactly the same order as the sequential search.
+ *
+ * <p>In the sequential search a vertex joins the next frontier when the first vertex of the
+ * current frontier that has it as a successor is dequeued, and the successors of each vertex are
+ * enqueued in ascending order. So the next frontier is ordered by the position of the first parent
+ * of each vertex in the current frontier, and then by id. The workers record that first parent by
+ * taking the minimum of the parent positions of each vertex with an atomic compare and set, and
+ * the next frontier is then sorted by parent position and id.
+ */
+public class ParallelBreadthFirstSearch {
+  // Frontiers smaller than this are expanded by a single worker
+  private static final int SEQUENTIAL_FRONTIER = 1 << 10;
+  private static final int NO_PARENT = Integer.MAX_VALUE;
+
+  private final Adjacency adjacency;
+  private final ForkJoinPool pool;
+
+  /**
+   * A level synchronous breadth first search over an adjacency.
+   *
+   * @param adjacency the adjacency of the graph to search.
+   * @param pool the pool that expands the frontiers.
+   */
+  public ParallelBreadthFirstSearch(Adjacency adjacency, ForkJoinPool pool) {
+    this.adjacency = adjacency;
+    this.pool = pool;
+  }
+
+  /**
+   * Searches from each root in turn, skipping the verticies reached from earlier roots.
+   *
+   * @param roots the ids of the roots, in the order to search from them.
+   * @return the ids of the verticies in the order they were visited.
+   */
+  public int[] search(int[] roots) {
+    int vertexCount = adjacency.vertexCount();
+    BitSet discovered = new BitSet(vertexCount);
+    AtomicIntegerArray parents = new AtomicIntegerArray(vertexCount);
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      parents.set(vertex, NO_PARENT);
+    }
+
+    int[] visited = new int[vertexCount];
+    int visitedCount = 0;
+    for (int root : roots) {
+      discovered.set(root);
+      int[] frontier = new int[] {root};
+
+      // Visit the verticies one level at a time until no new verticies are discovered
+      while (frontier.length > 0) {
+        if (visitedCount + frontier.length > visited.length) {
+          int capacity = Math.max(visited.length * 2, visitedCount + frontier.length);
+          visited = Arrays.copyOf(visited, capacity);
+        }
+        System.arraycopy(frontier, 0, visited, visitedCount, frontier.length);
+        visitedCount += frontier.length;
+        frontier = nextFrontier(frontier, discovered, parents);
+      }
+    }
+    return Arrays.copyOf(visited, visitedCount);
+  }
+
+  /**
+   * Expands a frontier into the next one, marking the verticies of the next one as discovered.
+   *
+   * @param frontier the ids of the current frontier, in visiting order.
+   * @param discovered the verticies discovered by earlier frontiers.
+   * @param parents the position of the first parent of each vertex, or NO_PARENT.
+   * @return the ids of the next frontier, in visiting order.
+   */
+  private int[] nextFrontier(int[] frontier, BitSet discovered, AtomicIntegerArray parents) {
+    // Find every undiscovered successor and the position of its first parent in the frontier
+    int[] found = pool.invoke(new Expand(frontier, 0, frontier.length, discovered, parents));
+
+    // Order the successors by the position of their first parent and then by id
+    long[] keys = new long[found.length];
+    for (int i = 0; i < found.length; i++) {
+      keys[i] = LongHashSet.pack(parents.get(found[i]), found[i]);
+    }
+    Arrays.parallelSort(keys);
+
+    int[] next = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      next[i] = (int) keys[i];
+      discovered.set(next[i]);
+    }
+    return next;
+  }
+
+  /** Expands a range of a frontier, returning each newly found successor exactly once. */
+  private class Expand extends RecursiveTask<int[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] frontier;
+    private final int from;
+    private final int to;
+    private final BitSet discovered;
+    private final AtomicIntegerArray parents;
+
+    /**
+     * Expands a range of a frontier.
+     *
+     * @param frontier the ids of the frontier.
+     * @param from the first position of the range.
+     * @param to the position just past the end of the range.
+     * @param discovered the verticies discovered by earlier frontiers, which is only read.
+     * @param parents the position of the first parent of each vertex.
+     */
+    private Expand(
+        int[] frontier, int from, int to, BitSet discovered, AtomicIntegerArray parents) {
+      this.frontier = frontier;
+      this.from = from;
+      this.to = to;
+      this.discovered = discovered;
+      this.parents = parents;
+    }
+
+    @Override
+    protected int[] compute() {
+      // Split large ranges in half and expand both halves in parallel
+      if (to - from > SEQUENTIAL_FRONTIER) {
+        int middle = (from + to) >>> 1;
+        Expand left = new Expand(frontier, from, middle, discovered, parents);
+        Expand right = new Expand(frontier, middle, to, discovered, parents);
+        left.fork();
+        int[] rightFound = right.compute();
+        int[] leftFound = left.join();
+
+        int[] found = Arrays.copyOf(leftFound, leftFound.length + rightFound.length);
+        System.arraycopy(rightFound, 0, found, leftFound.length, rightFound.length);
+        return found;
+      }
+
+      int[] found = new int[16];
+      int count = 0;
+      for (int position = from; position < to; position++) {
+        int vertex = frontier[position];
+        for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+          int successor = adjacency.target(i);
+          if (discovered.get(successor)) {
+            continue;
+          }
+
+          // Lower the first parent of the successor to this position, and keep the successor if
+          // this is the first time it has been found
+          int parent = parents.get(successor);
+          while (position < parent && !parents.compareAndSet(successor, parent, position)) {
+            parent = parents.get(successor);
+          }
+          if (parent == NO_PARENT) {
+            if (count == found.length) {
+              found = Arrays.copyOf(found, found.length * 2);
+            }
+            found[count++] = successor;
+          }
+        }
+      }
+      return Arrays.copyOf(found, count);
+    }
+  }
+}
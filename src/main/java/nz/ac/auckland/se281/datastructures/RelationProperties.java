@@ -0,0 +1,118 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * The properties of the relation described by the edges of a graph, along with a counterexample
+ * for each property that does not hold when the properties were found by analysing the graph.
+ */
+public class RelationProperties {
+  private final boolean reflexive;
+  private final boolean symmetric;
+  private final boolean antiSymmetric;
+  private final boolean transitive;
+
+  // The ids of the verticies of a counterexample to each property, or null if the property holds
+  private final boolean witnessed;
+  private final int[] reflexiveWitness;
+  private final int[] symmetricWitness;
+  private final int[] antiSymmetricWitness;
+  private final int[] transitiveWitness;
+
+  /**
+   * The properties of the relation described by the edges of a graph, without counterexamples.
+   *
+   * @param reflexive whether every vertex has a self loop.
+   * @param symmetric whether every edge has a reverse edge.
+   * @param antiSymmetric whether no edge between two different verticies has a reverse edge.
+   * @param transitive whether every path of two edges has an edge that shortcuts it.
+   */
+  public RelationProperties(
+      boolean reflexive, boolean symmetric, boolean antiSymmetric, boolean transitive) {
+    this.reflexive = reflexive;
+    this.symmetric = symmetric;
+    this.antiSymmetric = antiSymmetric;
+    this.transitive = transitive;
+    this.witnessed = false;
+    this.reflexiveWitness = null;
+    this.symmetricWitness = null;
+    this.antiSymmetricWitness = null;
+    this.transitiveWitness = null;
+  }
+
+  /**
+   * The properties of the relation described by the edges of a graph, where each property holds
+   * exactly when it has no counterexample.
+   *
+   * @param reflexiveWitness the id of a vertex without a self loop, or null.
+   * @param symmetricWitness the ids A and B of an edge A to B without a reverse edge, or null.
+   * @param antiSymmetricWitness the ids A and B of two different verticies with edges both ways, or
+   *     null.
+   * @param transitiveWitness the ids A, B and C of edges A to B and B to C without an edge A to C,
+   *     or null.
+   */
+  RelationProperties(
+      int[] reflexiveWitness,
+      int[] symmetricWitness,
+      int[] antiSymmetricWitness,
+      int[] transitiveWitness) {
+    this.reflexive = reflexiveWitness == null;
+    this.symmetric = symmetricWitness == null;
+    this.antiSymmetric = antiSymmetricWitness == null;
+    this.transitive = transitiveWitness == null;
+    this.witnessed = true;
+    this.reflexiveWitness = reflexiveWitness;
+    this.symmetricWitness = symmetricWitness;
+    this.antiSymmetricWitness = antiSymmetricWitness;
+    this.transitiveWitness = transitiveWitness;
+  }
+
+  public boolean isReflexive() {
+    return reflexive;
+  }
+
+  public boolean isSymmetric() {
+    return symmetric;
+  }
+
+  public boolean isAntiSymmetric() {
+    return antiSymmetric;
+  }
+
+  public boolean isTransitive() {
+    return transitive;
+  }
+
+  /**
+   * Finds whether the relation is an equivalence relation.
+   *
+   * @return true if the relation is reflexive, symmetric and transitive, false otherwise.
+   */
+  public boolean isEquivalence() {
+    return reflexive && symmetric && transitive;
+  }
+
+  /**
+   * Finds whether the counterexamples are known, which is not the case for properties that were
+   * restored from a snapshot.
+   *
+   * @return true if every property that does not hold has a counterexample, false otherwise.
+   */
+  boolean isWitnessed() {
+    return witnessed;
+  }
+
+  int[] getReflexiveWitness() {
+    return reflexiveWitness;
+  }
+
+  int[] getSymmetricWitness() {
+    return symmetricWitness;
+  }
+
+  int[] getAntiSymmetricWitness() {
+    return antiSymmetricWitness;
+  }
+
+  int[] getTransitiveWitness() {
+    return transitiveWitness;
+  }
+}
@@ -0,0 +1,422 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Decides whether a relation is reflexive, symmetric and anti symmetric from a stream of its edges,
+ * without building the graph.
+ *
+ * <p>Reflexivity only needs one bit per vertex. For the other two properties every edge A to B
+ * between different verticies is turned into a record of the unordered pair {A, B} and the
+ * direction of the edge, and the records of each pair are brought together by sorting. A relation
+ * is symmetric if every pair has records in both directions, and anti symmetric if no pair does.
+ *
+ * <p>The records are kept in memory while they fit in the memory budget. When the memory is full,
+ * the records of each pair are first combined into one record with the directions of all of them,
+ * so later duplicate edges of the pair merge into it. Only if that does not free half of the
+ * memory are the records spilled to files in the temporary directory, partitioned by a hash of
+ * their pair so that every record of a pair lands in the same file. Each file is then sorted and
+ * scanned on its own, and files that are still too large are partitioned again with a different
+ * hash. A file that is still too large after the last partitioning holds records of so few pairs
+ * that no hash can split them, so it is sorted on disk and scanned as a stream instead.
+ */
+public class StreamingPropertyChecker implements EdgeSink {
+  /** The number of bytes of records kept in memory by default. */
+  public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+  private static final long MIN_MEMORY_BUDGET = 1L << 10;
+  private static final int PARTITIONS = 64;
+  private static final int MAX_PARTITION_DEPTH = 4;
+
+  // Each record packs the smaller id, the larger id and a bit for each direction of the pair
+  private static final int FORWARD = 1;
+  private static final int BACKWARD = 2;
+  private static final int BOTH = FORWARD | BACKWARD;
+
+  private final Path tempDirectory;
+  private final long[] records;
+  private int recordCount;
+
+  private final BitSet selfLoops = new BitSet();
+  private int vertexCount;
+  private long edgeCount;
+  private long spilledBytes;
+  private boolean symmetric = true;
+  private boolean antiSymmetric = true;
+  private boolean finished;
+
+  private LongFileWriter[] partitions;
+  private final List<Path> files = new ArrayList<Path>();
+
+  /**
+   * Decides the properties of a relation from a stream of its edges.
+   *
+   * @param tempDirectory the directory that records are spilled to.
+   * @param memoryBudget the number of bytes of records to keep in memory.
+   */
+  public StreamingPropertyChecker(Path tempDirectory, long memoryBudget) {
+    this.tempDirectory = tempDirectory;
+    long budget = Math.max(memoryBudget, MIN_MEMORY_BUDGET);
+    this.records = new long[(int) Math.min(budget / Long.BYTES, Integer.MAX_VALUE - 8)];
+  }
+
+  @Override
+  public int addVertex() {
+    return vertexCount++;
+  }
+
+  @Override
+  public void addEdge(int source, int destination) throws IOException {
+    edgeCount++;
+    if (source == destination) {
+      selfLoops.set(source);
+      return;
+    }
+
+    // Once both pair properties are violated, the pairs no longer need to be kept
+    if (!symmetric && !antiSymmetric) {
+      return;
+    }
+
+    if (recordCount == records.length) {
+      compact();
+      if (recordCount > records.length / 2) {
+        spill();
+      }
+    }
+    records[recordCount++] =
+        source < destination
+            ? pack(source, destination, FORWARD)
+            : pack(destination, source, BACKWARD);
+  }
+
+  /**
+   * Decides the properties once every vertex and edge has been added, scanning any spilled
+   * records. Spill files are deleted once they have been scanned.
+   *
+   * @throws IOException if the spilled records cannot be read.
+   */
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+
+    if (partitions == null) {
+      scan(records, recordCount);
+      return;
+    }
+
+    // Spill the records still in memory so every record of a pair is in the same file
+    spill();
+    LongFileWriter[] spilled = partitions;
+    partitions = null;
+    closePartitions(spilled);
+    for (LongFileWriter partition : spilled) {
+      if (partition != null) {
+        scanFile(partition.getFile(), 1);
+      }
+    }
+  }
+
+  public boolean isReflexive() {
+    requireFinished();
+    return selfLoops.cardinality() == vertexCount;
+  }
+
+  public boolean isSymmetric() {
+    requireFinished();
+    return symmetric;
+  }
+
+  public boolean isAntiSymmetric() {
+    requireFinished();
+    return antiSymmetric;
+  }
+
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  public long edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Gets the number of bytes of records written to spill files, including files that were
+   * partitioned again.
+   *
+   * @return the number of bytes spilled to the temporary directory.
+   */
+  public long spilledBytes() {
+    return spilledBytes;
+  }
+
+  /** Closes and deletes every spill file that is left. */
+  @Override
+  public void close() throws IOException {
+    if (partitions != null) {
+      LongFileWriter[] open = partitions;
+      partitions = null;
+      closePartitions(open);
+    }
+    for (Path file : files) {
+      Files.deleteIfExists(file);
+    }
+    files.clear();
+  }
+
+  /**
+   * Appends every record in memory to the spill file of its pair.
+   *
+   * @throws IOException if the spill files cannot be written.
+   */
+  private void spill() throws IOException {
+    if (partitions == null) {
+      partitions = new LongFileWriter[PARTITIONS];
+    }
+    for (int i = 0; i < recordCount; i++) {
+      append(partitions, partitionOf(records[i], 0), records[i]);
+    }
+    recordCount = 0;
+  }
+
+  /**
+   * Combines the records in memory that belong to the same pair, keeping one record of each pair
+   * with the directions of all of them. Pairs with edges both ways break anti symmetry, but are
+   * kept so that later duplicates of their edges still merge with both directions.
+   */
+  private void compact() {
+    Arrays.sort(records, 0, recordCount);
+    int count = 0;
+    int i = 0;
+    while (i < recordCount) {
+      long pair = records[i] >>> 2;
+      int directions = 0;
+      while (i < recordCount && records[i] >>> 2 == pair) {
+        directions |= (int) records[i] & BOTH;
+        i++;
+      }
+      if (directions == BOTH) {
+        antiSymmetric = false;
+      }
+      records[count++] = (pair << 2) | directions;
+    }
+    recordCount = count;
+  }
+
+  /**
+   * Scans the records of one spill file, partitioning it again if it does not fit in memory.
+   *
+   * @param file the spill file.
+   * @param depth the number of times the records of the file have been partitioned.
+   * @throws IOException if the file cannot be read or partitioned.
+   */
+  private void scanFile(Path file, int depth) throws IOException {
+    long count = Files.size(file) / Long.BYTES;
+
+    // A file that fits in memory is scanned whole
+    if (count <= records.length) {
+      try (LongFileReader reader = new LongFileReader(file)) {
+        for (int i = 0; i < count; i++) {
+          records[i] = reader.next();
+        }
+      }
+      delete(file);
+      scan(records, (int) count);
+      return;
+    }
+
+    // A file whose pairs no hash can split any further is sorted on disk instead
+    if (depth >= MAX_PARTITION_DEPTH) {
+      scanSorted(file);
+      return;
+    }
+
+    // Otherwise split its records over new spill files with a hash that depends on the depth
+    LongFileWriter[] split = new LongFileWriter[PARTITIONS];
+    try (LongFileReader reader = new LongFileReader(file)) {
+      while (reader.hasNext()) {
+        long record = reader.next();
+        append(split, partitionOf(record, depth), record);
+      }
+    } finally {
+      closePartitions(split);
+    }
+    delete(file);
+    for (LongFileWriter partition : split) {
+      if (partition != null) {
+        scanFile(partition.getFile(), depth + 1);
+      }
+    }
+  }
+
+  /**
+   * Scans the records of a spill file that is too large for memory by sorting them into a file of
+   * distinct records on disk, and reading the records of each pair one after another from it.
+   *
+   * @param file the spill file.
+   * @throws IOException if the file cannot be read or sorted.
+   */
+  private void scanSorted(Path file) throws IOException {
+    try (ExternalLongSorter sorter =
+        new ExternalLongSorter(tempDirectory, (long) records.length * Long.BYTES)) {
+      try (LongFileReader reader = new LongFileReader(file)) {
+        while (reader.hasNext()) {
+          sorter.add(reader.next());
+        }
+      }
+      delete(file);
+
+      try (LongFileReader reader = new LongFileReader(sorter.finish())) {
+        long pair = -1;
+        int directions = 0;
+        while (reader.hasNext() && (symmetric || antiSymmetric)) {
+          long record = reader.next();
+          if (record >>> 2 != pair) {
+            if (pair != -1) {
+              checkPair(directions);
+            }
+            pair = record >>> 2;
+            directions = 0;
+          }
+          directions |= (int) record & BOTH;
+        }
+        if (pair != -1) {
+          checkPair(directions);
+        }
+      }
+      spilledBytes += sorter.spilledBytes();
+    }
+  }
+
+  /**
+   * Sorts records so the records of each pair are next to each other, and checks the directions
+   * of every pair.
+   *
+   * @param batch the array holding the records at its start.
+   * @param count the number of records.
+   */
+  private void scan(long[] batch, int count) {
+    if (!symmetric && !antiSymmetric) {
+      return;
+    }
+    Arrays.sort(batch, 0, count);
+
+    int i = 0;
+    while (i < count) {
+      // Combine the directions of every record of the pair
+      long pair = batch[i] >>> 2;
+      int directions = 0;
+      while (i < count && batch[i] >>> 2 == pair) {
+        directions |= (int) batch[i] & BOTH;
+        i++;
+      }
+
+      checkPair(directions);
+      if (!symmetric && !antiSymmetric) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Checks the combined directions of the records of one pair.
+   *
+   * @param directions the directions of every record of the pair.
+   */
+  private void checkPair(int directions) {
+    // A pair with edges one way breaks symmetry, and a pair with edges both ways breaks anti
+    // symmetry
+    if (directions == BOTH) {
+      antiSymmetric = false;
+    } else {
+      symmetric = false;
+    }
+  }
+
+  /**
+   * Appends a record to the spill file of a partition. Spill files are only created once they
+   * have a record, so few pairs spread over many partitions do not leave many empty files.
+   *
+   * @param partitions the spill file of each partition, or null where none has been created.
+   * @param partition the index of the partition.
+   * @param record the record.
+   * @throws IOException if the file cannot be created or written.
+   */
+  private void append(LongFileWriter[] partitions, int partition, long record)
+      throws IOException {
+    if (partitions[partition] == null) {
+      Path file = Files.createTempFile(tempDirectory, "pairs", ".spill");
+      files.add(file);
+      partitions[partition] = new LongFileWriter(file);
+    }
+    partitions[partition].append(record);
+  }
+
+  /**
+   * Closes spill files, counting the bytes written to them.
+   *
+   * @param open the spill files to close, or null where none was created.
+   * @throws IOException if the buffered records cannot be written.
+   */
+  private void closePartitions(LongFileWriter[] open) throws IOException {
+    for (LongFileWriter partition : open) {
+      if (partition != null) {
+        partition.close();
+        spilledBytes += partition.bytesWritten();
+      }
+    }
+  }
+
+  /**
+   * Deletes a spill file that has been scanned or partitioned again.
+   *
+   * @param file the spill file.
+   * @throws IOException if the file cannot be deleted.
+   */
+  private void delete(Path file) throws IOException {
+    Files.deleteIfExists(file);
+    files.remove(file);
+  }
+
+  /** Checks that the properties have been decided. */
+  private void requireFinished() {
+    if (!finished) {
+      throw new IllegalStateException("the edge stream has not been finished");
+    }
+  }
+
+  /**
+   * Packs a pair and a direction into a record.
+   *
+   * @param smaller the smaller id of the pair.
+   * @param larger the larger id of the pair.
+   * @param direction the direction of the edge between them.
+   * @return the record.
+   */
+  private static long pack(int smaller, int larger, int direction) {
+    return ((long) smaller << 33) | ((long) larger << 2) | direction;
+  }
+
+  /**
+   * Finds the partition of the pair of a record, with a hash that differs at every depth.
+   *
+   * @param record the record.
+   * @param depth the number of times the records have been partitioned before.
+   * @return the index of the partition.
+   */
+  private static int partitionOf(long record, int depth) {
+    long hash = (record >>> 2) * 0x9e3779b97f4a7c15L + depth;
+    hash ^= hash >>> 31;
+    hash *= 0xbf58476d1ce4e5b9L;
+    hash ^= hash >>> 29;
+    return (int) ((hash >>> 1) % PARTITIONS);
+  }
+}
@@ -0,0 +1,320 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Computes the transitive closure of the adjacency of a graph.
+ *
+ * <p>Every vertex in a strongly connected component reaches exactly the same verticies, so the
+ * components are found first with an iterative version of Tarjan's algorithm. Tarjan's algorithm
+ * completes each component after every component it has an edge to, so in the order they are
+ * completed each component only needs the reach of components that come before it. The reach of
+ * each component is a bit set over the components numbered before it, built by combining the bit
+ * sets of its successors, and it is discarded once the last component with an edge to it is done.
+ * Components whose successors reach fewer verticies than their bit set has words skip the bit set,
+ * and merge the sorted rows of their successors instead.
+ */
+public class TransitiveClosure {
+  private TransitiveClosure() {}
+
+  /**
+   * Computes the transitive closure of an adjacency, which has an edge from A to B whenever there
+   * is a path of one or more edges from A to B.
+   *
+   * @param adjacency the adjacency of the graph.
+   * @param reflexive whether every vertex also has an edge to itself, which gives the reflexive
+   *     transitive closure.
+   * @param edgeLimit the largest number of edges the closure may have.
+   * @return the adjacency of the closure.
+   * @throws IllegalStateException if the closure has more edges than the limit.
+   */
+  public static CsrAdjacency compute(Adjacency adjacency, boolean reflexive, long edgeLimit) {
+    int vertexCount = adjacency.vertexCount();
+    int[] component = findComponents(adjacency);
+    int componentCount = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      componentCount = Math.max(componentCount, component[vertex] + 1);
+    }
+
+    // Group the members of each component in ascending id order
+    int[] memberStart = new int[componentCount + 1];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      memberStart[component[vertex] + 1]++;
+    }
+    for (int c = 0; c < componentCount; c++) {
+      memberStart[c + 1] += memberStart[c];
+    }
+    int[] members = new int[vertexCount];
+    int[] next = Arrays.copyOf(memberStart, componentCount);
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      members[next[component[vertex]]++] = vertex;
+    }
+
+    // A component reaches itself if it has a cycle, and its reach is needed until the last
+    // component with an edge to it is done
+    boolean[] cyclic = new boolean[componentCount];
+    int[] lastUse = new int[componentCount];
+    Arrays.fill(lastUse, -1);
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int from = component[vertex];
+      cyclic[from] |= memberStart[from + 1] - memberStart[from] > 1;
+      for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+        int to = component[adjacency.target(i)];
+        if (to == from) {
+          cyclic[from] = true;
+        } else {
+          lastUse[to] = Math.max(lastUse[to], from);
+        }
+      }
+    }
+
+    long[][] reach = new long[componentCount][];
+    int[] mark = new int[componentCount];
+    Arrays.fill(mark, -1);
+    int[] successors = new int[16];
+
+    // The sorted row of every component, stored one after another
+    int[] rowStart = new int[componentCount];
+    int[] rowLength = new int[componentCount];
+    int[] rows = new int[Math.max(16, vertexCount)];
+    int rowsLength = 0;
+    long edgeCount = 0;
+    long[] vertexBits = new long[(vertexCount + 63) >>> 6];
+
+    for (int c = 0; c < componentCount; c++) {
+      boolean reachesItself = reflexive || cyclic[c];
+
+      // Find the distinct successor components, which were all completed before this one, and how
+      // many verticies their rows hold between them
+      int successorCount = 0;
+      long gathered = reachesItself ? memberStart[c + 1] - memberStart[c] : 0;
+      for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+        int vertex = members[m];
+        for (int i = adjacency.rowStart(vertex); i < adjacency.rowEnd(vertex); i++) {
+          int d = component[adjacency.target(i)];
+          if (d == c || mark[d] == c) {
+            continue;
+          }
+          mark[d] = c;
+          if (successorCount == successors.length) {
+            successors = Arrays.copyOf(successors, successors.length * 2);
+          }
+          successors[successorCount++] = d;
+          gathered += memberStart[d + 1] - memberStart[d] + rowLength[d];
+        }
+      }
+
+      int length;
+      if (gathered <= (c >>> 6) + 1) {
+        // A component that reaches little is quicker to build by merging the rows of its
+        // successors than by combining bit sets over every component before it
+        rowStart[c] = rowsLength;
+        rows = ensureCapacity(rows, rowsLength + gathered);
+        if (reachesItself) {
+          for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+            rows[rowsLength++] = members[m];
+          }
+        }
+        for (int s = 0; s < successorCount; s++) {
+          int d = successors[s];
+          for (int m = memberStart[d]; m < memberStart[d + 1]; m++) {
+            rows[rowsLength++] = members[m];
+          }
+          System.arraycopy(rows, rowStart[d], rows, rowsLength, rowLength[d]);
+          rowsLength += rowLength[d];
+        }
+        length = sortDistinct(rows, rowStart[c], rowsLength);
+        rowsLength = rowStart[c] + length;
+      } else {
+        long[] bits = new long[(c >>> 6) + 1];
+        if (reachesItself) {
+          bits[c >>> 6] |= 1L << c;
+        }
+        for (int s = 0; s < successorCount; s++) {
+          int d = successors[s];
+          bits[d >>> 6] |= 1L << d;
+          long[] successorBits = reach[d];
+          if (successorBits == null) {
+            // A successor that was built from rows has no bit set, but its row is short
+            for (int i = rowStart[d]; i < rowStart[d] + rowLength[d]; i++) {
+              int e = component[rows[i]];
+              bits[e >>> 6] |= 1L << e;
+            }
+          } else {
+            for (int w = 0; w < successorBits.length; w++) {
+              bits[w] |= successorBits[w];
+            }
+          }
+        }
+        if (lastUse[c] != -1) {
+          reach[c] = bits;
+        }
+
+        // List every member of every reached component as the sorted row of this component,
+        // through the bit set of every vertex so the row does not need sorting
+        length = 0;
+        for (int w = 0; w < bits.length; w++) {
+          for (long word = bits[w]; word != 0; word &= word - 1) {
+            int d = (w << 6) + Long.numberOfTrailingZeros(word);
+            length += memberStart[d + 1] - memberStart[d];
+            for (int m = memberStart[d]; m < memberStart[d + 1]; m++) {
+              vertexBits[members[m] >>> 6] |= 1L << members[m];
+            }
+          }
+        }
+        rowStart[c] = rowsLength;
+        rows = ensureCapacity(rows, (long) rowsLength + length);
+        for (int w = 0; w < vertexBits.length; w++) {
+          for (long word = vertexBits[w]; word != 0; word &= word - 1) {
+            rows[rowsLength++] = (w << 6) + Long.numberOfTrailingZeros(word);
+          }
+          vertexBits[w] = 0;
+        }
+      }
+      rowLength[c] = length;
+
+      // Discard the bit sets of successors that no later component needs
+      for (int s = 0; s < successorCount; s++) {
+        if (lastUse[successors[s]] == c) {
+          reach[successors[s]] = null;
+        }
+      }
+
+      edgeCount += (long) length * (memberStart[c + 1] - memberStart[c]);
+      if (edgeCount > edgeLimit) {
+        throw new IllegalStateException("the closure has more than " + edgeLimit + " edges");
+      }
+    }
+
+    // Give every vertex a copy of the row of its component
+    int[] offsets = new int[vertexCount + 1];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      offsets[vertex + 1] = offsets[vertex] + rowLength[component[vertex]];
+    }
+    int[] targets = new int[offsets[vertexCount]];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int c = component[vertex];
+      System.arraycopy(rows, rowStart[c], targets, offsets[vertex], rowLength[c]);
+    }
+    return new CsrAdjacency(offsets, targets);
+  }
+
+  /**
+   * Grows an array of ints so it holds at least a number of ints.
+   *
+   * @param values the array to grow.
+   * @param capacity the number of ints it must hold.
+   * @return the array, or a larger copy of it.
+   * @throws IllegalStateException if no array can hold that many ints.
+   */
+  private static int[] ensureCapacity(int[] values, long capacity) {
+    if (capacity <= values.length) {
+      return values;
+    }
+    if (capacity > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("the closure has more than " + Integer.MAX_VALUE + " edges");
+    }
+    long grown = Math.min(Math.max(capacity, 2L * values.length), Integer.MAX_VALUE - 8);
+    return Arrays.copyOf(values, (int) grown);
+  }
+
+  /**
+   * Sorts a range of ints and removes duplicates, moving the distinct ints to the start of the
+   * range.
+   *
+   * @param values the array holding the range.
+   * @param from the index of the first int of the range.
+   * @param to the index just past the last int of the range.
+   * @return the number of distinct ints.
+   */
+  private static int sortDistinct(int[] values, int from, int to) {
+    Arrays.sort(values, from, to);
+    int end = from;
+    for (int i = from; i < to; i++) {
+      if (i == from || values[i] != values[end - 1]) {
+        values[end++] = values[i];
+      }
+    }
+    return end - from;
+  }
+
+  /**
+   * Finds the strongly connected components of an adjacency with Tarjan's algorithm, using an
+   * explicit stack of calls so deep graphs cannot overflow the thread stack.
+   *
+   * @param adjacency the adjacency of the graph.
+   * @return the component of every vertex, numbered in the order the components were completed,
+   *     so every edge between two components goes to a component with a smaller number.
+   */
+  static int[] findComponents(Adjacency adjacency) {
+    int vertexCount = adjacency.vertexCount();
+    int[] index = new int[vertexCount];
+    Arrays.fill(index, -1);
+    int[] low = new int[vertexCount];
+    int[] component = new int[vertexCount];
+    Arrays.fill(component, -1);
+
+    // The verticies of components that are not complete yet, and the calls being visited
+    int[] stack = new int[vertexCount];
+    int stackSize = 0;
+    int[] callVertex = new int[vertexCount];
+    int[] callEdge = new int[vertexCount];
+    int depth = 0;
+
+    int counter = 0;
+    int componentCount = 0;
+    for (int root = 0; root < vertexCount; root++) {
+      if (index[root] != -1) {
+        continue;
+      }
+
+      index[root] = counter;
+      low[root] = counter++;
+      stack[stackSize++] = root;
+      callVertex[0] = root;
+      callEdge[0] = adjacency.rowStart(root);
+      depth = 1;
+
+      while (depth > 0) {
+        int vertex = callVertex[depth - 1];
+        int edge = callEdge[depth - 1];
+
+        if (edge < adjacency.rowEnd(vertex)) {
+          callEdge[depth - 1]++;
+          int successor = adjacency.target(edge);
+          if (index[successor] == -1) {
+            // Visit an unvisited successor as if calling the recursive algorithm on it
+            index[successor] = counter;
+            low[successor] = counter++;
+            stack[stackSize++] = successor;
+            callVertex[depth] = successor;
+            callEdge[depth] = adjacency.rowStart(successor);
+            depth++;
+          } else if (component[successor] == -1) {
+            // A visited successor without a component is still on the stack
+            low[vertex] = Math.min(low[vertex], index[successor]);
+          }
+          continue;
+        }
+
+        // Every successor is done, so return to the caller and pass the lowest index up
+        depth--;
+        if (depth > 0) {
+          int caller = callVertex[depth - 1];
+          low[caller] = Math.min(low[caller], low[vertex]);
+        }
+
+        // A vertex that reaches nothing lower on the stack is the root of a component
+        if (low[vertex] == index[vertex]) {
+          int member;
+          do {
+            member = stack[--stackSize];
+            component[member] = componentCount;
+          } while (member != vertex);
+          componentCount++;
+        }
+      }
+    }
+    return component;
+  }
+}
@@ -0,0 +1,109 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary that interns each vertex of a graph to a dense int id.
+ *
+ * <p>Ids are assigned in ascending numerical order of the vertices, so comparing two ids gives the
+ * same result as comparing the vertices numerically. The numerical sort key of each vertex is
+ * parsed only once, when the dictionary is built.
+ *
+ * @param <T> The type of each vertex.
+ */
+public class VertexDictionary<T extends Comparable<T>> {
+  private final List<T> vertexById;
+  private final Map<T, Integer> idByVertex;
+  private final int[] sortKeys;
+
+  /**
+   * A dictionary that interns each vertex of a graph to a dense int id.
+   *
+   * @param verticies the verticies to intern.
+   */
+  public VertexDictionary(Collection<T> verticies) {
+    List<T> unordered = new ArrayList<T>(verticies);
+    int size = unordered.size();
+
+    // Parse the numerical key of every vertex once
+    int[] keys = new int[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = Integer.parseInt(unordered.get(i).toString());
+    }
+
+    // Pack each key with its position so a single primitive sort orders the verticies by key
+    long[] packed = new long[size];
+    for (int i = 0; i < size; i++) {
+      packed[i] = ((long) keys[i] << 32) | i;
+    }
+    Arrays.sort(packed);
+
+    // Assign ids in the sorted order
+    vertexById = new ArrayList<T>(size);
+    idByVertex = new HashMap<T, Integer>(size * 2);
+    sortKeys = new int[size];
+    for (int id = 0; id < size; id++) {
+      int position = (int) packed[id];
+      T vertex = unordered.get(position);
+      vertexById.add(vertex);
+      idByVertex.put(vertex, id);
+      sortKeys[id] = keys[position];
+    }
+  }
+
+  /**
+   * A dictionary of verticies that are already in ascending numerical order, such as those read
+   * back from a snapshot, so the keys do not need to be parsed or sorted again.
+   *
+   * @param vertexById the verticies in ascending numerical order, so each index is its id.
+   * @param sortKeys the numerical sort key of each vertex, in the same order.
+   */
+  VertexDictionary(List<T> vertexById, int[] sortKeys) {
+    this.vertexById = vertexById;
+    this.sortKeys = sortKeys;
+    idByVertex = new HashMap<T, Integer>(vertexById.size() * 2);
+    for (int id = 0; id < vertexById.size(); id++) {
+      idByVertex.put(vertexById.get(id), id);
+    }
+  }
+
+  public int size() {
+    return vertexById.size();
+  }
+
+  /**
+   * Gets the id of a vertex.
+   *
+   * @param vertex the vertex to look up.
+   * @return the id of the vertex, or -1 if the vertex is not in the dictionary.
+   */
+  public int idOf(T vertex) {
+    Integer id = idByVertex.get(vertex);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Gets the vertex with an id.
+   *
+   * @param id the id of the vertex.
+   * @return the vertex with the id.
+   */
+  public T vertexOf(int id) {
+    return vertexById.get(id);
+  }
+
+  /**
+   * Gets the numerical sort key that was parsed from the vertex with an id.
+   *
+   * @param id the id of the vertex.
+   * @return the numerical sort key of the vertex.
+   */
+  public int sortKey(int id) {
+    return sortKeys[id];
+  }
+}
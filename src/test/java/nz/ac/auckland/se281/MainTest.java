@@ -1,8 +1,36 @@
 package nz.ac.auckland.se281;
 
 import static nz.ac.auckland.se281.Command.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphBuilder;
+import nz.ac.auckland.se281.datastructures.GraphSnapshot;
+import nz.ac.auckland.se281.datastructures.GraphSnapshot.InvalidSnapshotException;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -13,6 +41,8 @@ import org.junit.runners.Suite.SuiteClasses;
   MainTest.Task2.class, // Uncomment this line when you start Task 2
   MainTest.Task3.class, // Uncomment this line when you start Task 3
   MainTest.YourTests.class, // Uncomment this line to run your own tests
+  MainTest.GraphTests.class,
+  MainTest.StreamCheckTests.class,
 })
 public class MainTest {
   public static class Task1 extends CliTest {
@@ -265,10 +295,23 @@ public class MainTest {
   }
 
   public static class YourTests extends CliTest {
+    @Rule public TemporaryFolder temporary = new TemporaryFolder();
+
     public YourTests() {
       super(Main.class);
     }
 
+    /**
+     * Gets the path of a file in the temporary folder of the test, so files the commands save are
+     * not left in the test cases folder.
+     *
+     * @param filename the name of the file.
+     * @return the absolute path of the file.
+     */
+    String temporaryFile(String filename) {
+      return temporary.getRoot().toPath().resolve(filename).toString();
+    }
+
     @Test
     public void T2_D_recursive_BFS() throws Exception {
       runCommands(OPEN_FILE, "d.txt", GRAPH_SEARCH_RBFS);
@@ -436,5 +479,937 @@ public class MainTest {
       assertContains("Successfully opened graph from file h.txt");
       assertContains("[0, 22, 23, 8, 36, 3, 4, 5, 21, 2, 6, 7, 9, 19, 11]");
     }
+
+    @Test
+    public void T1_K_list_verticies_edges() throws Exception {
+      runCommands(OPEN_FILE, "k.txt", LIST_VERTICIES_EDGES);
+      assertContains("Successfully opened graph from file k.txt");
+      assertContains("Verticies:\n\t12\n\t3\n\t5\n\t7");
+      assertContains("Edges:\n\t12 -> 3\n\t3 -> 3\n\t3 -> 5\n\t5 -> 12");
+    }
+
+    @Test
+    public void T1_L_roots_with_attributes() throws Exception {
+      runCommands(OPEN_FILE, "l.txt", LIST_ROOT_VERTICIES);
+      assertContains("Successfully opened graph from file l.txt");
+      assertContains("[3, 10]");
+    }
+
+    @Test
+    public void T1_A_info_throughput() throws Exception {
+      runCommands(OPEN_FILE, "a.txt", INFO);
+      assertContains("File name: a.txt");
+      assertContains("Loaded 87 bytes in ");
+      assertContains(" MB/s)");
+      assertContains("Off-heap edge storage: 0 bytes");
+    }
+
+    @Test
+    public void T1_H_snapshot_round_trip() throws Exception {
+      String snapshot = temporaryFile("h.snap");
+      runCommands(
+          OPEN_FILE,
+          "h.txt",
+          CHECK_TRANSITIVITY,
+          SAVE_SNAPSHOT,
+          snapshot,
+          OPEN_SNAPSHOT,
+          snapshot,
+          LIST_ROOT_VERTICIES,
+          CHECK_TRANSITIVITY,
+          GRAPH_SEARCH_IDFS);
+      assertContains("Successfully saved graph snapshot to file " + snapshot);
+      assertContains("Successfully opened graph snapshot from file " + snapshot);
+      assertContains("[0, 2, 9, 19]");
+      assertContains("[0, 22, 8, 3, 36, 23, 4, 21, 5, 2, 6, 7, 9, 19, 11]");
+      assertContains("The graph is NOT transitive");
+    }
+
+    @Test
+    public void T2_H_parallel_BFS() throws Exception {
+      runCommands(OPEN_FILE, "h.txt", GRAPH_SEARCH_PBFS);
+      assertContains("Successfully opened graph from file h.txt");
+      assertContains("[0, 22, 23, 8, 36, 3, 4, 5, 21, 2, 6, 7, 9, 19, 11]");
+    }
+
+    @Test
+    public void T1_A_explain_failed_checks() throws Exception {
+      runCommands(
+          OPEN_FILE, "a.txt", EXPLAIN, CHECK_REFLEXIVITY, CHECK_SYMMETRY, CHECK_TRANSITIVITY);
+      assertContains("Explanations of failed property checks are on");
+      assertContains("Counterexample: vertex 0 has no edge to itself");
+      assertContains("Counterexample: edge 0 -> 1 has no reverse edge");
+      assertContains("Counterexample: edges 0 -> 1 and 1 -> 3 exist but 0 -> 3 does not");
+    }
+
+    @Test
+    public void T1_C_explain_antisymmetry() throws Exception {
+      runCommands(OPEN_FILE, "c.txt", EXPLAIN, CHECK_ANTISYMMETRY, CHECK_EQUIVALENCE);
+      assertContains("The graph is NOT antisymmetric");
+      assertContains("Counterexample: edges 1 -> 2 and 2 -> 1 both exist");
+      assertContains("The graph is an equivalence relation");
+    }
+
+    @Test
+    public void T1_A_transitive_closure() throws Exception {
+      String closure = temporaryFile("a.closure");
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          CHECK_TRANSITIVITY,
+          COMPUTE_CLOSURE,
+          closure,
+          OPEN_FILE,
+          closure,
+          CHECK_TRANSITIVITY,
+          CHECK_REFLEXIVITY,
+          LIST_ROOT_VERTICIES);
+      assertContains("The graph is NOT transitive");
+      assertContains("Saved the transitive closure with 8 edges to file " + closure);
+      assertContains("The graph is transitive");
+      assertContains("The graph is NOT reflexive");
+      assertContains("[0]");
+    }
+
+    @Test
+    public void T1_B_reflexive_transitive_closure() throws Exception {
+      String closure = temporaryFile("b.closure");
+      runCommands(
+          OPEN_FILE,
+          "b.txt",
+          COMPUTE_REFLEXIVE_CLOSURE,
+          closure,
+          OPEN_FILE,
+          closure,
+          CHECK_REFLEXIVITY,
+          CHECK_TRANSITIVITY);
+      assertContains("Saved the reflexive transitive closure with 43 edges to file " + closure);
+      assertContains("The graph is reflexive");
+      assertContains("The graph is transitive");
+    }
+
+    @Test
+    public void T1_A_snapshot_not_readable() throws Exception {
+      runCommands(OPEN_SNAPSHOT, "a.txt");
+      assertContains("Error: file 'a.txt' is not a readable graph snapshot");
+    }
+  }
+
+  /** Tests of the graph data structures that use them directly rather than through the CLI. */
+  public static class GraphTests {
+    /**
+     * Builds a graph over the verticies 0 to vertexCount - 1.
+     *
+     * @param builder the builder to add the verticies and edges to.
+     * @param vertexCount the number of verticies.
+     * @param edges the source and destination of each edge, one after another.
+     * @return the graph.
+     */
+    static Graph<String> build(GraphBuilder<String> builder, int vertexCount, int... edges) {
+      for (int vertex = 0; vertex < vertexCount; vertex++) {
+        builder.addVertex(String.valueOf(vertex));
+      }
+      for (int i = 0; i < edges.length; i += 2) {
+        builder.addEdge(edges[i], edges[i + 1]);
+      }
+      return builder.build();
+    }
+
+    static Graph<String> build(int vertexCount, int... edges) {
+      return build(new GraphBuilder<String>(), vertexCount, edges);
+    }
+
+    @Test
+    public void T4_sparse_relations_match_dense_relations() {
+      int[][] relations = {
+        {0, 1, 1, 2},
+        {0, 1, 1, 0, 0, 0, 1, 1},
+        {0, 1, 0, 2, 1, 2, 3, 3},
+        {0, 0, 1, 1, 2, 2, 3, 3, 0, 1, 1, 0},
+        {2, 1, 1, 2, 3, 0, 2, 3},
+      };
+      for (int[] edges : relations) {
+        // Padded with verticies without edges the relation is too sparse for the bit matrix, so
+        // its edges are looked up in the edge index instead
+        Graph<String> dense = build(4, edges);
+        Graph<String> sparse = build(400, edges);
+        assertEquals(dense.isSymmetric(), sparse.isSymmetric());
+        assertEquals(dense.isAntiSymmetric(), sparse.isAntiSymmetric());
+        assertEquals(dense.isTransitive(), sparse.isTransitive());
+        assertEquals(dense.getSymmetricWitness(), sparse.getSymmetricWitness());
+        assertEquals(dense.getAntiSymmetricWitness(), sparse.getAntiSymmetricWitness());
+        assertEquals(dense.getTransitiveWitness(), sparse.getTransitiveWitness());
+        assertFalse(sparse.isReflexive());
+      }
+
+      Graph<String> chain = build(400, 0, 1, 1, 2);
+      assertFalse(chain.isTransitive());
+      assertEquals(List.of("0", "1", "2"), chain.getTransitiveWitness());
+      assertEquals(List.of("3"), build(400, 0, 0, 1, 1, 2, 2).getReflexiveWitness());
+    }
+
+    /**
+     * Builds the edges of a relation where the verticies are split into blocks of consecutive ids,
+     * and every pair of verticies in the same block is related.
+     *
+     * @param vertexCount the number of verticies.
+     * @param blockSize the number of verticies in each block.
+     * @param strict whether only pairs from a smaller id to a larger id are related, which gives a
+     *     strict order on each block rather than an equivalence class.
+     * @return the source and destination of each edge, one after another.
+     */
+    static int[] blocks(int vertexCount, int blockSize, boolean strict) {
+      int[] edges = new int[2 * vertexCount * blockSize];
+      int count = 0;
+      for (int a = 0; a < vertexCount; a++) {
+        int block = a - a % blockSize;
+        for (int b = block; b < Math.min(block + blockSize, vertexCount); b++) {
+          if (!strict || a < b) {
+            edges[count++] = a;
+            edges[count++] = b;
+          }
+        }
+      }
+      return Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * Asserts that a graph checked in parallel has the same relation properties as the same graph
+     * checked sequentially, and that each of its counterexamples is a real one. The properties are
+     * asked for one at a time, so each is analysed on its own.
+     *
+     * @param vertexCount the number of verticies.
+     * @param edges the source and destination of each edge, one after another.
+     */
+    static void assertParallelPropertiesMatch(int vertexCount, int... edges) {
+      Graph<String> sequential = build(vertexCount, edges);
+      Graph<String> parallel = build(vertexCount, edges);
+      parallel.setParallelEdgeThreshold(0);
+
+      assertEquals(sequential.isTransitive(), parallel.isTransitive());
+      List<String> transitive = parallel.getTransitiveWitness();
+      assertEquals(parallel.isTransitive(), transitive.isEmpty());
+      if (!transitive.isEmpty()) {
+        assertTrue(parallel.hasEdge(transitive.get(0), transitive.get(1)));
+        assertTrue(parallel.hasEdge(transitive.get(1), transitive.get(2)));
+        assertFalse(parallel.hasEdge(transitive.get(0), transitive.get(2)));
+      }
+
+      assertEquals(sequential.isReflexive(), parallel.isReflexive());
+      List<String> reflexive = parallel.getReflexiveWitness();
+      assertEquals(parallel.isReflexive(), reflexive.isEmpty());
+      if (!reflexive.isEmpty()) {
+        assertFalse(parallel.hasEdge(reflexive.get(0), reflexive.get(0)));
+      }
+
+      assertEquals(sequential.isSymmetric(), parallel.isSymmetric());
+      List<String> symmetric = parallel.getSymmetricWitness();
+      assertEquals(parallel.isSymmetric(), symmetric.isEmpty());
+      if (!symmetric.isEmpty()) {
+        assertTrue(parallel.hasEdge(symmetric.get(0), symmetric.get(1)));
+        assertFalse(parallel.hasEdge(symmetric.get(1), symmetric.get(0)));
+      }
+
+      assertEquals(sequential.isAntiSymmetric(), parallel.isAntiSymmetric());
+      List<String> antiSymmetric = parallel.getAntiSymmetricWitness();
+      assertEquals(parallel.isAntiSymmetric(), antiSymmetric.isEmpty());
+      if (!antiSymmetric.isEmpty()) {
+        assertFalse(antiSymmetric.get(0).equals(antiSymmetric.get(1)));
+        assertTrue(parallel.hasEdge(antiSymmetric.get(0), antiSymmetric.get(1)));
+        assertTrue(parallel.hasEdge(antiSymmetric.get(1), antiSymmetric.get(0)));
+      }
+      assertEquals(sequential.isEquivalence(), parallel.isEquivalence());
+
+      // The equivalence check on its own stops at the first violation it finds
+      Graph<String> equivalence = build(vertexCount, edges);
+      equivalence.setParallelEdgeThreshold(0);
+      assertEquals(sequential.isEquivalence(), equivalence.isEquivalence());
+      assertEquals(sequential.getRelationProperties().isTransitive(), equivalence.isTransitive());
+    }
+
+    @Test
+    public void T4_parallel_properties_match_sequential_properties() {
+      // Every relation has enough edges to be split into several ranges of rows. The relations
+      // over 1200 verticies are checked with the bit matrix, and the others with the edge index
+      for (int vertexCount : new int[] {1200, 20000}) {
+        int blockSize = vertexCount == 1200 ? 60 : 10;
+        int[] equivalence = blocks(vertexCount, blockSize, false);
+        assertParallelPropertiesMatch(vertexCount, equivalence);
+        assertParallelPropertiesMatch(vertexCount, blocks(vertexCount, blockSize, true));
+
+        // Removing the edge from the last vertex to the one before it leaves the relation
+        // reflexive but neither symmetric nor transitive, with the violations only in the rows of
+        // the last range
+        int[] missing = Arrays.copyOf(equivalence, equivalence.length - 2);
+        missing[missing.length - 1] = vertexCount - 1;
+        assertParallelPropertiesMatch(vertexCount, missing);
+
+        Random random = new Random(vertexCount);
+        int[] edges = new int[2 * 100000];
+        for (int i = 0; i < edges.length; i++) {
+          edges[i] = random.nextInt(vertexCount);
+        }
+        assertParallelPropertiesMatch(vertexCount, edges);
+      }
+    }
+
+    @Test
+    public void T4_off_heap_graphs_match_heap_graphs() {
+      // Enough random edges that the builder grows its edge arrays several times, with duplicates
+      Random random = new Random(281);
+      int[] edges = new int[2 * 300];
+      for (int i = 0; i < edges.length; i++) {
+        edges[i] = random.nextInt(60);
+      }
+      GraphBuilder<String> builder = new GraphBuilder<String>();
+      builder.setOffHeapEdgeThreshold(0);
+      Graph<String> heap = build(60, edges);
+      Graph<String> offHeap = build(builder, 60, edges);
+
+      assertEquals(0, heap.offHeapBytes());
+      assertTrue(offHeap.offHeapBytes() > 0);
+      assertEquals(heap.getVerticies(), offHeap.getVerticies());
+      assertEquals(heap.getEdges(), offHeap.getEdges());
+      assertEquals(heap.getRoots(), offHeap.getRoots());
+      assertEquals(heap.isReflexive(), offHeap.isReflexive());
+      assertEquals(heap.isSymmetric(), offHeap.isSymmetric());
+      assertEquals(heap.isAntiSymmetric(), offHeap.isAntiSymmetric());
+      assertEquals(heap.isTransitive(), offHeap.isTransitive());
+      assertEquals(heap.getReflexiveWitness(), offHeap.getReflexiveWitness());
+      assertEquals(heap.getSymmetricWitness(), offHeap.getSymmetricWitness());
+      assertEquals(heap.getAntiSymmetricWitness(), offHeap.getAntiSymmetricWitness());
+      assertEquals(heap.getTransitiveWitness(), offHeap.getTransitiveWitness());
+      assertEquals(heap.iterativeBreadthFirstSearch(), offHeap.iterativeBreadthFirstSearch());
+      assertEquals(heap.iterativeDepthFirstSearch(), offHeap.iterativeDepthFirstSearch());
+      assertEquals(heap.recursiveBreadthFirstSearch(), offHeap.recursiveBreadthFirstSearch());
+      assertEquals(heap.recursiveDepthFirstSearch(), offHeap.recursiveDepthFirstSearch());
+      assertEquals(heap.iterativeBreadthFirstSearch(), offHeap.parallelBreadthFirstSearch());
+
+      offHeap.close();
+      assertEquals(0, offHeap.offHeapBytes());
+
+      // Building the graph frees the edges of the builder outside of the heap
+      try {
+        builder.build();
+        fail("the builder should not build a second graph");
+      } catch (IllegalStateException e) {
+        assertEquals("the graph has already been built", e.getMessage());
+      }
+    }
+
+    @Test
+    public void T4_degrees_count_distinct_edges() {
+      // Self loops on 0 and 3, a repeated edge from 0 to 1 and the isolated vertex 4
+      int[] edges = {0, 1, 0, 2, 0, 0, 1, 2, 2, 0, 0, 1, 3, 3};
+      GraphBuilder<String> builder = new GraphBuilder<String>();
+      builder.setOffHeapEdgeThreshold(0);
+      for (Graph<String> graph : List.of(build(5, edges), build(builder, 5, edges))) {
+        int[] inDegrees = {2, 1, 2, 1, 0};
+        int[] outDegrees = {3, 1, 1, 1, 0};
+        for (int vertex = 0; vertex < 5; vertex++) {
+          assertEquals(inDegrees[vertex], graph.inDegree(String.valueOf(vertex)));
+          assertEquals(outDegrees[vertex], graph.outDegree(String.valueOf(vertex)));
+        }
+        assertArrayEquals(new int[] {1, 3, 0, 1}, graph.degreeHistogram());
+
+        try {
+          graph.inDegree("5");
+          fail("5 should not be a vertex of the graph");
+        } catch (IllegalArgumentException e) {
+          assertEquals("vertex 5 is not in the graph", e.getMessage());
+        }
+      }
+      assertArrayEquals(new int[] {2}, build(2).degreeHistogram());
+    }
+
+    @Test
+    public void T3_parallel_search_wide_frontier() {
+      // A star whose leaves are split across several workers, where many leaves share successors
+      // in the next level so the workers race to record the first parent of each one
+      int leaves = 5000;
+      int[] edges = new int[2 * (3 * leaves)];
+      Random random = new Random(281);
+      for (int leaf = 1; leaf <= leaves; leaf++) {
+        int i = 6 * (leaf - 1);
+        edges[i] = 0;
+        edges[i + 1] = leaf;
+        edges[i + 2] = leaf;
+        edges[i + 3] = leaves + 1 + random.nextInt(2000);
+        edges[i + 4] = leaf;
+        edges[i + 5] = leaves + 1 + random.nextInt(2000);
+      }
+      Graph<String> star = build(leaves + 2001, edges);
+
+      ForkJoinPool pool = new ForkJoinPool(4);
+      try {
+        assertEquals(star.iterativeBreadthFirstSearch(), star.parallelBreadthFirstSearch(pool));
+      } finally {
+        pool.shutdown();
+      }
+      assertEquals(star.iterativeBreadthFirstSearch(), star.parallelBreadthFirstSearch());
+    }
+
+    /**
+     * Builds the chain 0 -> 1 -> ... -> length - 1.
+     *
+     * @param length the number of verticies in the chain.
+     * @return the chain.
+     */
+    static Graph<String> chain(int length) {
+      int[] edges = new int[2 * (length - 1)];
+      for (int vertex = 0; vertex < length - 1; vertex++) {
+        edges[2 * vertex] = vertex;
+        edges[2 * vertex + 1] = vertex + 1;
+      }
+      return build(length, edges);
+    }
+
+    @Test
+    public void T3_recursive_searches_long_chain() {
+      Graph<String> chain = chain(50000);
+      List<String> expected = chain.getVerticies();
+      assertEquals(expected, chain.recursiveBreadthFirstSearch());
+      assertEquals(expected, chain.recursiveDepthFirstSearch());
+    }
+
+    @Test
+    public void T3_recursive_searches_depth_limit() {
+      Graph<String> chain = chain(100);
+      chain.setRecursionDepthLimit(50);
+      try {
+        chain.recursiveDepthFirstSearch();
+        fail("the search should stop at the depth limit");
+      } catch (IllegalStateException e) {
+        assertEquals("the recursive search is deeper than the limit of 50", e.getMessage());
+      }
+      chain.setRecursionDepthLimit(100);
+      assertEquals(chain.getVerticies(), chain.recursiveDepthFirstSearch());
+    }
+
+    /**
+     * Overwrites one int of a file.
+     *
+     * @param file the file to change.
+     * @param index the index of the int in the file.
+     * @param value the new value of the int.
+     */
+    static void overwriteInt(Path file, int index, int value) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, value), index * Integer.BYTES);
+      }
+    }
+
+    /**
+     * Asserts that a snapshot is rejected as it is both read and mapped with verifying.
+     *
+     * @param file the snapshot file.
+     * @param message the reason the snapshot should be rejected for.
+     */
+    static void assertInvalidSnapshot(Path file, String message) throws IOException {
+      try {
+        GraphSnapshot.read(file);
+        fail("the snapshot should not be readable");
+      } catch (InvalidSnapshotException e) {
+        assertEquals(message, e.getMessage());
+      }
+      try {
+        GraphSnapshot.map(file, true);
+        fail("the snapshot should not be mappable");
+      } catch (InvalidSnapshotException e) {
+        assertEquals(message, e.getMessage());
+      }
+    }
+
+    @Test
+    public void T4_corrupt_snapshots_fail_when_opened() throws IOException {
+      // The verticies 0 to 3 with single digit names are laid out as a header of 6 ints, 4 sort
+      // keys, 5 name offsets, 1 int of names, 5 offsets, 4 targets and then 4 in degrees
+      int targets = 6 + 4 + 5 + 1 + 5;
+      int degrees = targets + 4;
+      Path file = Files.createTempFile("graph", ".snap");
+      try {
+        GraphSnapshot.write(build(4, 0, 1, 0, 2, 1, 2, 3, 0), file);
+        assertEquals(List.of("3", "0", "1"), GraphSnapshot.map(file).getTransitiveWitness());
+
+        overwriteInt(file, targets, 4);
+        assertInvalidSnapshot(file, "the snapshot adjacency is corrupt");
+        overwriteInt(file, targets, 2);
+        overwriteInt(file, targets + 1, 1);
+        assertInvalidSnapshot(file, "the snapshot adjacency is corrupt");
+        overwriteInt(file, targets, 1);
+        overwriteInt(file, targets + 1, 2);
+
+        // Mapping without verifying trusts the saved in degrees, but still checks the last offset
+        overwriteInt(file, degrees, 0);
+        assertInvalidSnapshot(file, "the snapshot in degrees are corrupt");
+        assertEquals(0, GraphSnapshot.map(file).inDegree("0"));
+        overwriteInt(file, degrees, 1);
+        assertEquals(1, GraphSnapshot.map(file).inDegree("0"));
+        overwriteInt(file, targets - 1, 3);
+        assertInvalidSnapshot(file, "the snapshot adjacency is corrupt");
+        try {
+          GraphSnapshot.map(file);
+          fail("the snapshot should not be mappable");
+        } catch (InvalidSnapshotException e) {
+          assertEquals("the snapshot adjacency is corrupt", e.getMessage());
+        }
+        overwriteInt(file, targets - 1, 4);
+        assertEquals(4, GraphSnapshot.map(file).edgeCount());
+      } finally {
+        Files.delete(file);
+      }
+    }
+
+    /**
+     * Writes a DOT file of random statements over the verticies 0 to 299, mixing single edges,
+     * chains of edges, lone verticies and comments.
+     *
+     * @param seed the seed of the statements.
+     * @param middle a statement written half way through the file.
+     * @return the file.
+     */
+    static Path writeRandomDot(long seed, String middle) throws IOException {
+      Random random = new Random(seed);
+      StringBuilder dot = new StringBuilder("digraph relation {\n  // a random relation\n");
+      for (int i = 0; i < 3000; i++) {
+        if (i == 1500) {
+          dot.append(middle);
+        }
+        int kind = random.nextInt(10);
+        dot.append("  ");
+        if (kind == 0) {
+          dot.append("/* a lone vertex */ ");
+        }
+        dot.append(random.nextInt(300));
+        for (int link = kind < 3 ? 0 : kind < 8 ? 1 : 3; link > 0; link--) {
+          dot.append(" -> ").append(random.nextInt(300));
+        }
+        dot.append(kind == 9 ? "\n" : ";\n");
+      }
+      dot.append("}\n");
+      return Files.writeString(Files.createTempFile("graph", ".dot"), dot);
+    }
+
+    /** A graph builder that records the verticies and the edges in the order they are added. */
+    static class RecordingBuilder extends GraphBuilder<String> {
+      private final List<String> verticies = new ArrayList<String>();
+      private final List<String> edges = new ArrayList<String>();
+
+      @Override
+      public int addVertex(String vertex) {
+        int index = super.addVertex(vertex);
+        if (index == verticies.size()) {
+          verticies.add(vertex);
+        }
+        return index;
+      }
+
+      @Override
+      public void addEdge(int source, int destination) {
+        super.addEdge(source, destination);
+        edges.add(verticies.get(source) + " -> " + verticies.get(destination));
+      }
+    }
+
+    /**
+     * Reads a DOT file with the sequential reader.
+     *
+     * @param file the file to read.
+     * @return the builder that recorded the verticies and edges in the order they were read.
+     */
+    static RecordingBuilder readSequentially(Path file)
+        throws IOException, DotReader.UnsupportedSyntaxException {
+      RecordingBuilder builder = new RecordingBuilder();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        new DotReader(channel)
+            .read(
+                new DotReader.Listener() {
+                  @Override
+                  public int vertex(String name) {
+                    return builder.addVertex(name);
+                  }
+
+                  @Override
+                  public void edge(int source, int destination) {
+                    builder.addEdge(source, destination);
+                  }
+                });
+      }
+      return builder;
+    }
+
+    /**
+     * Reads a DOT file with the parallel loader, splitting even small files into many ranges.
+     *
+     * @param file the file to read.
+     * @param builder the builder to add the verticies and edges to.
+     * @return true if the file was read in parallel.
+     */
+    static boolean readInParallel(Path file, GraphBuilder<String> builder) throws IOException {
+      ForkJoinPool pool = new ForkJoinPool(4);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        ParallelDotLoader loader = new ParallelDotLoader(pool);
+        loader.setParallelByteThreshold(0);
+        loader.setMinRangeBytes(1);
+        return loader.read(channel, builder);
+      } finally {
+        pool.shutdown();
+      }
+    }
+
+    @Test
+    public void T4_parallel_dot_loads_match_sequential_loads() throws Exception {
+      Path file = writeRandomDot(1, "");
+      try {
+        RecordingBuilder parallel = new RecordingBuilder();
+        assertTrue(readInParallel(file, parallel));
+        RecordingBuilder sequential = readSequentially(file);
+        assertEquals(sequential.verticies, parallel.verticies);
+        assertEquals(sequential.edges, parallel.edges);
+        Graph<String> expected = sequential.build();
+        Graph<String> actual = parallel.build();
+        assertEquals(expected.getVerticies(), actual.getVerticies());
+        assertEquals(expected.getEdges(), actual.getEdges());
+        assertEquals(expected.iterativeBreadthFirstSearch(), actual.iterativeBreadthFirstSearch());
+        assertEquals(expected.iterativeDepthFirstSearch(), actual.iterativeDepthFirstSearch());
+
+        // Files below the default threshold are left to the sequential reader
+        GraphBuilder<String> small = new GraphBuilder<String>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          assertFalse(new ParallelDotLoader().read(channel, small));
+        }
+        assertEquals(0, small.vertexCount());
+      } finally {
+        Files.delete(file);
+      }
+    }
+
+    @Test
+    public void T4_parallel_dot_loads_fall_back_to_sequential_loads() throws Exception {
+      // A chain of edges over more lines than a range holds, so a range starts part way through it
+      StringBuilder chain = new StringBuilder("  0");
+      for (int vertex = 1; vertex < 1000; vertex++) {
+        chain.append(" ->\n    ").append(vertex);
+      }
+      Path file = writeRandomDot(2, chain.append(";\n").toString());
+      try {
+        GraphBuilder<String> parallel = new GraphBuilder<String>();
+        assertFalse(readInParallel(file, parallel));
+        assertEquals(0, parallel.vertexCount());
+        assertEquals(0, parallel.edgeCount());
+        Graph<String> expected = readSequentially(file).build();
+        assertTrue(expected.hasEdge("998", "999"));
+      } finally {
+        Files.delete(file);
+      }
+
+      // Attributes are not supported by either reader
+      file = writeRandomDot(3, "  1 -> 2 [color=red];\n");
+      try {
+        GraphBuilder<String> parallel = new GraphBuilder<String>();
+        assertFalse(readInParallel(file, parallel));
+        assertEquals(0, parallel.vertexCount());
+        try {
+          readSequentially(file);
+          fail("the attribute should not be supported");
+        } catch (DotReader.UnsupportedSyntaxException e) {
+          // expected
+        }
+      } finally {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /** Tests of the command line checks that stream the edges of a file through the disk. */
+  public static class StreamCheckTests {
+    @Rule public TemporaryFolder temporary = new TemporaryFolder();
+
+    /**
+     * Writes a relation to a DOT file over the verticies 0 to vertexCount - 1, with its edges in
+     * the order given and any duplicate edges kept.
+     *
+     * @param directory the directory to write the file to.
+     * @param vertexCount the number of verticies.
+     * @param edges the source and destination of each edge, one after another.
+     * @return the file.
+     */
+    static Path writeDot(Path directory, int vertexCount, int... edges) throws IOException {
+      StringBuilder dot = new StringBuilder("digraph relation {\n");
+      for (int vertex = 0; vertex < vertexCount; vertex++) {
+        dot.append("  ").append(vertex).append(";\n");
+      }
+      for (int i = 0; i < edges.length; i += 2) {
+        dot.append("  ").append(edges[i]).append(" -> ").append(edges[i + 1]).append(";\n");
+      }
+      dot.append("}\n");
+      return Files.writeString(Files.createTempFile(directory, "relation", ".txt"), dot);
+    }
+
+    /**
+     * Runs the command line options, capturing what they print.
+     *
+     * @param args the command line options.
+     * @return the lines printed.
+     */
+    static List<String> runOptions(String... args) {
+      PrintStream out = System.out;
+      ByteArrayOutputStream captured = new ByteArrayOutputStream();
+      System.setOut(new PrintStream(captured, true));
+      try {
+        Main.main(args);
+      } finally {
+        System.setOut(out);
+      }
+      return captured.toString().lines().collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the number of bytes a check reports spilling to disk.
+     *
+     * @param summary the last line printed by the check.
+     * @return the number of bytes spilled.
+     */
+    static long spilledBytes(String summary) {
+      Matcher matcher = Pattern.compile("spilling (\\d+) bytes").matcher(summary);
+      assertTrue(summary, matcher.find());
+      return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Asserts that the stream check of a relation with the smallest memory budget spills to disk,
+     * and decides the same properties as the in memory check and as the graph itself.
+     *
+     * @param vertexCount the number of verticies.
+     * @param edges the source and destination of each edge, one after another.
+     */
+    void assertStreamCheckMatches(int vertexCount, int... edges) throws IOException {
+      String file = writeDot(temporary.getRoot().toPath(), vertexCount, edges).toString();
+      Path spills = temporary.newFolder().toPath();
+      List<String> inMemory = runOptions("--stream-check", file);
+      List<String> spilled =
+          runOptions(
+              "--stream-check", file, "--memory-budget", "1", "--temp-dir", spills.toString());
+
+      Graph<String> graph = GraphTests.build(vertexCount, edges);
+      List<String> expected =
+          List.of(
+              MessageCli.GRAPH_REFLEXIVE.getMessage(graph.isReflexive() ? "" : "NOT "),
+              MessageCli.GRAPH_SYMMETRIC.getMessage(graph.isSymmetric() ? "" : "NOT "),
+              MessageCli.GRAPH_ANTI_SYMMETRIC.getMessage(graph.isAntiSymmetric() ? "" : "NOT "));
+      assertEquals(expected, inMemory.subList(0, 3));
+      assertEquals(expected, spilled.subList(0, 3));
+      assertEquals(0, spilledBytes(inMemory.get(3)));
+      assertTrue(spilledBytes(spilled.get(3)) > 0);
+
+      // Every spill file is deleted once it has been scanned
+      try (Stream<Path> left = Files.list(spills)) {
+        assertEquals(0, left.count());
+      }
+    }
+
+    @Test
+    public void T4_stream_check_spills_and_partitions_again() throws IOException {
+      // Enough edges between distinct pairs that the spill files are too large for the memory
+      // budget and are partitioned again
+      Random random = new Random(281);
+      int[] ascending = new int[2 * 12000];
+      for (int i = 0; i < ascending.length; i += 2) {
+        ascending[i] = random.nextInt(2999);
+        ascending[i + 1] = ascending[i] + 1 + random.nextInt(2999 - ascending[i]);
+      }
+      assertStreamCheckMatches(3000, ascending);
+
+      // Each edge and its reverse are far apart, so they are spilled separately
+      int[] symmetric = Arrays.copyOf(ascending, 2 * ascending.length);
+      for (int i = 0; i < ascending.length; i += 2) {
+        symmetric[ascending.length + i] = ascending[i + 1];
+        symmetric[ascending.length + i + 1] = ascending[i];
+      }
+      assertStreamCheckMatches(3000, symmetric);
+
+      // Reversing one edge leaves a pair with edges both ways and a pair with only one edge
+      symmetric[symmetric.length - 2] = symmetric[symmetric.length - 4];
+      assertStreamCheckMatches(3000, symmetric);
+
+      // Self loops on every vertex do not count as pairs
+      int[] reflexive = Arrays.copyOf(symmetric, symmetric.length + 2 * 3000);
+      for (int vertex = 0; vertex < 3000; vertex++) {
+        reflexive[symmetric.length + 2 * vertex] = vertex;
+        reflexive[symmetric.length + 2 * vertex + 1] = vertex;
+      }
+      assertStreamCheckMatches(3000, reflexive);
+    }
+
+    @Test
+    public void T4_stream_check_rejects_memory_budgets_that_are_not_positive() throws IOException {
+      String file = writeDot(temporary.getRoot().toPath(), 2, 0, 1).toString();
+      for (String budget : new String[] {"0", "-1", "lots"}) {
+        assertEquals(
+            List.of(MessageCli.INVALID_OPTION.getMessage(budget)),
+            runOptions("--stream-check", file, "--memory-budget", budget));
+        assertEquals(
+            List.of(MessageCli.INVALID_OPTION.getMessage(budget)),
+            runOptions("--transitivity-check", file, "--memory-budget", budget));
+      }
+    }
+
+    @Test
+    public void T4_stream_check_duplicate_edges_while_spilling() throws IOException {
+      // The edges between 0 and 1 are combined in memory before anything spills, the edges between
+      // the other pairs are spilled one way at a time, and then every edge is repeated
+      int[] edges = new int[2 * (2 + 2 * 398) * 2];
+      int count = 0;
+      for (int copy = 0; copy < 2; copy++) {
+        edges[count++] = 0;
+        edges[count++] = 1;
+        edges[count++] = 1;
+        edges[count++] = 0;
+        for (int k = 2; k < 400; k++) {
+          edges[count++] = k;
+          edges[count++] = k + 1000;
+        }
+        for (int k = 2; k < 400; k++) {
+          edges[count++] = k + 1000;
+          edges[count++] = k;
+        }
+      }
+      assertTrue(GraphTests.build(1400, edges).isSymmetric());
+      assertStreamCheckMatches(1400, edges);
+
+      // A duplicate of an edge of a pair that was combined in memory merges with both directions
+      int[] repeated = Arrays.copyOf(edges, edges.length + 2);
+      repeated[edges.length] = 0;
+      repeated[edges.length + 1] = 1;
+      assertStreamCheckMatches(1400, repeated);
+    }
+
+    @Test
+    public void T4_stream_check_sorts_unsplittable_spill_files() throws IOException {
+      // The same 100 edges over and over fill the memory with distinct pairs every time, so every
+      // pair is spilled hundreds of times and no hash can split its spill file small enough
+      int[] repeated = new int[2 * 100 * 300];
+      for (int i = 0; i < repeated.length; i += 2) {
+        repeated[i] = i / 2 % 100;
+        repeated[i + 1] = 100 + i / 2 % 100;
+      }
+      assertStreamCheckMatches(200, repeated);
+
+      // With the reverse edges added after all of them, every pair has edges both ways
+      int[] both = Arrays.copyOf(repeated, 2 * repeated.length);
+      for (int i = 0; i < repeated.length; i += 2) {
+        both[repeated.length + i] = repeated[i + 1];
+        both[repeated.length + i + 1] = repeated[i];
+      }
+      assertStreamCheckMatches(200, both);
+    }
+
+    /**
+     * Gets the number of paths a transitivity check reports checking.
+     *
+     * @param summary the last line printed by the check.
+     * @return the number of paths checked.
+     */
+    static long pathCount(String summary) {
+      Matcher matcher = Pattern.compile("Checked (\\d+) paths").matcher(summary);
+      assertTrue(summary, matcher.find());
+      return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Asserts that the transitivity check of a relation with the smallest memory budget spills to
+     * disk, and decides the same as the in memory check and as the graph itself.
+     *
+     * @param vertexCount the number of verticies.
+     * @param edges the source and destination of each edge, one after another.
+     * @return the number of bytes the check with the smallest memory budget spilled.
+     */
+    long assertTransitivityCheckMatches(int vertexCount, int... edges) throws IOException {
+      String file = writeDot(temporary.getRoot().toPath(), vertexCount, edges).toString();
+      Path runs = temporary.newFolder().toPath();
+      List<String> inMemory = runOptions("--transitivity-check", file);
+      List<String> spilled =
+          runOptions(
+              "--transitivity-check",
+              file,
+              "--memory-budget",
+              "1",
+              "--temp-dir",
+              runs.toString());
+
+      boolean transitive = GraphTests.build(vertexCount, edges).isTransitive();
+      String expected = MessageCli.GRAPH_TRANSITIVE.getMessage(transitive ? "" : "NOT ");
+      assertEquals(expected, inMemory.get(0));
+      assertEquals(expected, spilled.get(0));
+
+      // A transitive relation has every path checked however many batches they are split into
+      if (transitive) {
+        assertEquals(pathCount(inMemory.get(1)), pathCount(spilled.get(1)));
+      }
+      long spilledBytes = spilledBytes(spilled.get(1));
+      assertTrue(spilledBytes > spilledBytes(inMemory.get(1)));
+
+      // Every run is deleted once the check is done
+      try (Stream<Path> left = Files.list(runs)) {
+        assertEquals(0, left.count());
+      }
+      return spilledBytes;
+    }
+
+    @Test
+    public void T4_transitivity_check_merges_runs_and_batches_paths() throws IOException {
+      // A strict order on each block of 40 verticies has over 20000 edges, which the smallest
+      // budget sorts into more runs than it can merge at once, and about 270000 paths, which it
+      // checks in dozens of batches. The edges are shuffled so every run holds edges of every
+      // block
+      int[] order = GraphTests.blocks(1120, 40, true);
+      int edgeCount = order.length / 2;
+      Random random = new Random(281);
+      for (int i = order.length - 2; i > 0; i -= 2) {
+        int j = 2 * random.nextInt(i / 2 + 1);
+        int source = order[i];
+        int destination = order[i + 1];
+        order[i] = order[j];
+        order[i + 1] = order[j + 1];
+        order[j] = source;
+        order[j + 1] = destination;
+      }
+
+      // Each order of the edges is written once as runs and at least twice more by the merges
+      long spilledBytes = assertTransitivityCheckMatches(1120, order);
+      assertTrue(spilledBytes > 2 * (2L * edgeCount * Long.BYTES));
+
+      // Removing the edge between the ends of the last block leaves a path around it
+      int[] missing = GraphTests.blocks(1120, 40, true);
+      for (int i = 0; i < missing.length; i += 2) {
+        if (missing[i] == 1080 && missing[i + 1] == 1119) {
+          missing[i + 1] = 1081;
+        }
+      }
+      assertTransitivityCheckMatches(1120, missing);
+
+      // Every block related to itself is an equivalence relation, which is transitive
+      assertTransitivityCheckMatches(900, GraphTests.blocks(900, 30, false));
+    }
+
+    @Test
+    public void T4_transitivity_check_rows_too_long_to_cache() throws IOException {
+      // Vertex 0 has more successors than the smallest budget caches, and vertex 5001 reaches
+      // everything 0 does
+      int[] edges = new int[2 * 10001];
+      for (int leaf = 1; leaf <= 5000; leaf++) {
+        edges[4 * (leaf - 1)] = 0;
+        edges[4 * (leaf - 1) + 1] = leaf;
+        edges[4 * (leaf - 1) + 2] = 5001;
+        edges[4 * (leaf - 1) + 3] = leaf;
+      }
+      edges[edges.length - 2] = 5001;
+      edges[edges.length - 1] = 0;
+      assertTransitivityCheckMatches(5002, edges);
+
+      // Without the edge from 5001 to the last leaf, the path through 0 has no shortcut
+      edges[4 * 4999 + 3] = 0;
+      assertTransitivityCheckMatches(5002, edges);
+    }
   }
 }